@@ -0,0 +1,50 @@
+package com.getbase.floatingactionbutton;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Entry point of the benchmarks. JMH runs in-process (no forks) inside the Robolectric sandbox, so
+ * the benchmarks see the Android classes and resources of a Robolectric test. JMH itself runs on a
+ * background thread, while this thread, the Robolectric main thread, runs the benchmark code
+ * handed over through {@link MainThread}.
+ * <p>
+ * Reports ops/s, and the GC profiler adds the allocated bytes per op (gc.alloc.rate.norm).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BenchmarkSuite {
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        final Options options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", ""))
+                .forks(0)
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .build();
+
+        // the thread is created here, so it inherits the sandbox as its context class loader
+        ExecutorService jmh = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> run = jmh.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return new Runner(options).run();
+                }
+            });
+            MainThread.serve(run);
+        } finally {
+            jmh.shutdown();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.getbase.floatingactionbutton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ColorUtilsBenchmark {
+
+    // more colors than ColorUtils caches, so cycling through them derives every palette again
+    private static final int COLOR_COUNT = 128;
+
+    private final int[] mColors = new int[COLOR_COUNT];
+    private final int[] mPalette = new int[ColorUtils.PALETTE_SIZE];
+    private int mNext;
+
+    private final Runnable mDerivePalette = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            int color = mColors[mNext];
+            mNext = (mNext + 1) % COLOR_COUNT;
+            ColorUtils.getPalette(color, mPalette);
+        }
+    });
+
+    private final Runnable mCachedPalette = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            ColorUtils.getPalette(mColors[0], mPalette);
+        }
+    });
+
+    public ColorUtilsBenchmark() {
+        for (int i = 0; i < COLOR_COUNT; i++) {
+            mColors[i] = 0xFF000000 | (i * 0x020301);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public int[] derivePalette() {
+        MainThread.run(mDerivePalette);
+        return mPalette;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public int[] cachedPalette() {
+        MainThread.run(mCachedPalette);
+        return mPalette;
+    }
+}
@@ -0,0 +1,88 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FloatingActionButtonBenchmark {
+
+    private FloatingActionButton mButton;
+    private FloatingActionButton mConstructed;
+    private boolean mToggle;
+
+    private final Runnable mConstruct = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mConstructed = new FloatingActionButton(RuntimeEnvironment.application);
+        }
+    });
+
+    // flips between two colors, both backgrounds come from BackgroundCache after the first pass
+    private final Runnable mRebuildBackgroundCached = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mToggle = !mToggle;
+            mButton.setColorNormal(mToggle ? Color.RED : Color.BLUE);
+        }
+    });
+
+    // full rebuild: palette, shadow bitmap and drawable state are all created again
+    private final Runnable mRebuildBackgroundUncached = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            BackgroundCache.clear();
+            mToggle = !mToggle;
+            mButton.setColorNormal(mToggle ? Color.RED : Color.BLUE);
+        }
+    });
+
+    @Setup
+    public void setUp() {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                LabelTypefaceCache.setTypeface(Typeface.DEFAULT);
+                mButton = new FloatingActionButton(RuntimeEnvironment.application);
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public FloatingActionButton construct() {
+        MainThread.run(mConstruct);
+        return mConstructed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public FloatingActionButton rebuildBackgroundCached() {
+        MainThread.run(mRebuildBackgroundCached);
+        return mButton;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public FloatingActionButton rebuildBackgroundUncached() {
+        MainThread.run(mRebuildBackgroundUncached);
+        return mButton;
+    }
+}
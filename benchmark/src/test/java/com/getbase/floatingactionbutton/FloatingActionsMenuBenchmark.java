@@ -0,0 +1,95 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.view.View.MeasureSpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FloatingActionsMenuBenchmark {
+
+    @Param({"5", "20", "100"})
+    public int mItemCount;
+
+    private FloatingActionsMenu mMenu;
+    private int mWidthSpec;
+    private int mNarrowWidthSpec;
+    private int mHeightSpec;
+    private boolean mToggle;
+
+    // alternates the width spec, so every pass measures all buttons and labels
+    private final Runnable mMeasure = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mToggle = !mToggle;
+            mMenu.measure(mToggle ? mNarrowWidthSpec : mWidthSpec, mHeightSpec);
+        }
+    });
+
+    private final Runnable mLayout = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mMenu.onLayout(false, 0, 0, mMenu.getMeasuredWidth(), mMenu.getMeasuredHeight());
+        }
+    });
+
+    @Setup
+    public void setUp() {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                createMenu();
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public int measure() {
+        MainThread.run(mMeasure);
+        return mMenu.getMeasuredWidth();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public FloatingActionsMenu layout() {
+        MainThread.run(mLayout);
+        return mMenu;
+    }
+
+    private void createMenu() {
+        Context context = RuntimeEnvironment.application;
+        LabelTypefaceCache.setTypeface(Typeface.DEFAULT);
+
+        mMenu = new FloatingActionsMenu(context, null);
+        for (int i = 0; i < mItemCount; i++) {
+            FloatingActionButton button = new FloatingActionButton(context);
+            button.setTitle("Action " + i);
+            mMenu.addButton(button);
+        }
+
+        mWidthSpec = MeasureSpec.makeMeasureSpec(1080, MeasureSpec.AT_MOST);
+        mNarrowWidthSpec = MeasureSpec.makeMeasureSpec(1079, MeasureSpec.AT_MOST);
+        mHeightSpec = MeasureSpec.makeMeasureSpec(100000, MeasureSpec.AT_MOST);
+        mMenu.measure(mWidthSpec, mHeightSpec);
+        mMenu.layout(0, 0, mMenu.getMeasuredWidth(), mMenu.getMeasuredHeight());
+    }
+}
@@ -0,0 +1,82 @@
+package com.getbase.floatingactionbutton;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs benchmark code on the Robolectric main thread. JMH calls @Setup and @Benchmark methods on
+ * its own worker threads, which have no Looper and aren't the thread the Android environment was
+ * set up on. They hand the work over to the main thread instead, which {@link BenchmarkSuite}
+ * keeps serving while JMH runs.
+ * <p>
+ * Every hand-over runs {@link #BATCH} iterations to amortize its cost, benchmarks divide it out
+ * with @OperationsPerInvocation. {@link MainThreadBenchmark} measures what's left of it.
+ */
+final class MainThread {
+
+    static final int BATCH = 100;
+
+    private static final BlockingQueue<FutureTask<Void>> sTasks = new LinkedBlockingQueue<>();
+    private static volatile Thread sThread;
+
+    private MainThread() {
+    }
+
+    /**
+     * Runs the task on the main thread and waits for it to finish.
+     */
+    static void run(Runnable task) {
+        if (Thread.currentThread() == sThread) {
+            task.run();
+            return;
+        }
+
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        sTasks.add(future);
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return a task running the body {@link #BATCH} times, to be created once per benchmark.
+     */
+    static Runnable batch(final Runnable body) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < BATCH; i++) {
+                    body.run();
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the tasks handed over from other threads on the calling thread until the given work is
+     * done, and rethrows its failure.
+     */
+    static void serve(Future<?> until) throws InterruptedException, ExecutionException {
+        sThread = Thread.currentThread();
+        try {
+            while (!until.isDone()) {
+                FutureTask<Void> task = sTasks.poll(10, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            }
+            until.get();
+        } finally {
+            sThread = null;
+        }
+    }
+}
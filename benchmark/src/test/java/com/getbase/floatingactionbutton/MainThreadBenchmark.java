@@ -0,0 +1,39 @@
+package com.getbase.floatingactionbutton;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline: the share of the main thread hand-over in every op of the other benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MainThreadBenchmark {
+
+    private int mCount;
+
+    private final Runnable mEmpty = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mCount++;
+        }
+    });
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public void handOver() {
+        MainThread.run(mEmpty);
+    }
+}
@@ -0,0 +1,174 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.view.AbsSavedState;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save, parcel and restore of the menu state, the way the framework does it on a configuration
+ * change, against the previous format which serialized a HashMap of the titles into a Bundle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SavedStateBenchmark {
+
+    @Param({"5", "20", "50", "200"})
+    public int mItemCount;
+
+    private FloatingActionsMenu mMenu;
+
+    private Parcelable mRestored;
+
+    private final Runnable mRoundTrip = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            Parcelable state = mMenu.onSaveInstanceState();
+            mRestored = parcel(state);
+            mMenu.onRestoreInstanceState(mRestored);
+        }
+    });
+
+    // the same round trip with the save and restore code of the previous format
+    private final Runnable mLegacyRoundTrip = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            saveAndRestoreLegacy();
+        }
+    });
+
+    @Setup
+    public void setUp() {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                createMenu();
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public Parcelable roundTrip() {
+        MainThread.run(mRoundTrip);
+        return mRestored;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public Parcelable legacyRoundTrip() {
+        MainThread.run(mLegacyRoundTrip);
+        return mRestored;
+    }
+
+    private void createMenu() {
+        Context context = RuntimeEnvironment.application;
+        LabelTypefaceCache.setTypeface(Typeface.DEFAULT);
+
+        mMenu = new FloatingActionsMenu(context, null);
+        for (int i = 0; i < mItemCount; i++) {
+            FloatingActionButton button = new FloatingActionButton(context);
+            button.setId(i + 1);
+            button.setTitle("Action " + i);
+            mMenu.addButton(button);
+        }
+    }
+
+    private void saveAndRestoreLegacy() {
+        LegacySavedState state = new LegacySavedState(AbsSavedState.EMPTY_STATE);
+        state.mExpanded = mMenu.isExpanded();
+        HashMap<Integer, String> labelTitles = new HashMap<>();
+        for (int i = 0; i < mMenu.getChildCount(); i++) {
+            View v = mMenu.getChildAt(i);
+            if (v instanceof FloatingActionButton) {
+                FloatingActionButton fab = (FloatingActionButton) v;
+                labelTitles.put(fab.getId(), fab.getTitle());
+            }
+        }
+        state.mLabelTitlesMap = labelTitles;
+
+        LegacySavedState restored = parcel(state);
+        mRestored = restored;
+        for (int i = 0; i < mMenu.getChildCount(); i++) {
+            View v = mMenu.getChildAt(i);
+            if (v instanceof FloatingActionButton) {
+                FloatingActionButton fab = (FloatingActionButton) v;
+                fab.setTitle(restored.mLabelTitlesMap.get(fab.getId()));
+            }
+        }
+    }
+
+    private static <T extends Parcelable> T parcel(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(state, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(SavedStateBenchmark.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    public static class LegacySavedState extends View.BaseSavedState {
+
+        private static final String MAP_BUNDLE_KEY = "HashMap";
+        public boolean mExpanded;
+        public HashMap<Integer, String> mLabelTitlesMap;
+
+        public LegacySavedState(Parcelable parcel) {
+            super(parcel);
+        }
+
+        @SuppressWarnings("unchecked")
+        private LegacySavedState(Parcel in) {
+            super(in);
+            mExpanded = in.readInt() == 1;
+            mLabelTitlesMap = (HashMap<Integer, String>) in.readBundle().getSerializable(MAP_BUNDLE_KEY);
+        }
+
+        @Override
+        public void writeToParcel(@NonNull Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            Bundle b = new Bundle(1);
+            b.putSerializable(MAP_BUNDLE_KEY, mLabelTitlesMap);
+            out.writeInt(mExpanded ? 1 : 0);
+            out.writeBundle(b);
+        }
+
+        public static final Creator<LegacySavedState> CREATOR = new Creator<LegacySavedState>() {
+
+            @Override
+            public LegacySavedState createFromParcel(Parcel in) {
+                return new LegacySavedState(in);
+            }
+
+            @Override
+            public LegacySavedState[] newArray(int size) {
+                return new LegacySavedState[size];
+            }
+        };
+    }
+}
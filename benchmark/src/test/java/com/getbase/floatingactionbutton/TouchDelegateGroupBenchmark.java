@@ -0,0 +1,149 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.MotionEvent;
+import android.view.TouchDelegate;
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ACTION_DOWN routing with delegates added with their bounds (binary search over the sorted
+ * index) against delegates added without bounds (every delegate is asked in turn), plus the cost
+ * of updating the index when a single touch area moves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TouchDelegateGroupBenchmark {
+
+    private static final int ITEM_HEIGHT = 100;
+    private static final int ITEM_WIDTH = 400;
+
+    @Param({"10", "50", "100", "500"})
+    public int mDelegateCount;
+
+    private TouchDelegateGroup mIndexedGroup;
+    private TouchDelegateGroup mLinearGroup;
+    private TouchDelegate[] mIndexedDelegates;
+    private Rect[] mBounds;
+    private MotionEvent mEvent;
+    private int mNext;
+
+    private boolean mHandled;
+
+    private final Runnable mIndexedDown = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mHandled = mIndexedGroup.onTouchEvent(nextDown());
+        }
+    });
+
+    private final Runnable mLinearDown = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            mHandled = mLinearGroup.onTouchEvent(nextDown());
+        }
+    });
+
+    // moves one touch area the way a layout pass does: the old delegate is removed and a new one
+    // added at the same position
+    private final Runnable mIndexedReplace = MainThread.batch(new Runnable() {
+        @Override
+        public void run() {
+            int index = mNext;
+            mNext = (mNext + 1) % mDelegateCount;
+
+            mIndexedGroup.removeTouchDelegate(mIndexedDelegates[index]);
+            mIndexedGroup.addTouchDelegate(mBounds[index], mIndexedDelegates[index]);
+        }
+    });
+
+    @Setup
+    public void setUp() {
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                createDelegates();
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        mEvent.recycle();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public boolean indexedDown() {
+        MainThread.run(mIndexedDown);
+        return mHandled;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public boolean linearDown() {
+        MainThread.run(mLinearDown);
+        return mHandled;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MainThread.BATCH)
+    public TouchDelegateGroup indexedReplace() {
+        MainThread.run(mIndexedReplace);
+        return mIndexedGroup;
+    }
+
+    private void createDelegates() {
+        Context context = RuntimeEnvironment.application;
+        // handles every event, so the benchmark measures the routing and not the view
+        View target = new View(context) {
+            @Override
+            public boolean dispatchTouchEvent(MotionEvent event) {
+                return true;
+            }
+        };
+
+        mIndexedGroup = new TouchDelegateGroup(target);
+        mLinearGroup = new TouchDelegateGroup(target);
+        mIndexedGroup.setEnabled(true);
+        mLinearGroup.setEnabled(true);
+
+        mIndexedDelegates = new TouchDelegate[mDelegateCount];
+        mBounds = new Rect[mDelegateCount];
+        for (int i = 0; i < mDelegateCount; i++) {
+            mBounds[i] = new Rect(0, i * ITEM_HEIGHT, ITEM_WIDTH, (i + 1) * ITEM_HEIGHT);
+            mIndexedDelegates[i] = new TouchDelegate(mBounds[i], target);
+            mIndexedGroup.addTouchDelegate(mBounds[i], mIndexedDelegates[i]);
+            mLinearGroup.addTouchDelegate(new TouchDelegate(mBounds[i], target));
+        }
+
+        mEvent = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0);
+    }
+
+    // spreads the touches over all delegates, from the first to the last one
+    private MotionEvent nextDown() {
+        int index = mNext;
+        mNext = (mNext + 1) % mDelegateCount;
+        mEvent.setLocation(ITEM_WIDTH / 2, index * ITEM_HEIGHT + ITEM_HEIGHT / 2);
+        return mEvent;
+    }
+}
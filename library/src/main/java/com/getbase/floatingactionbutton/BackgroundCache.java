@@ -0,0 +1,118 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+/**
+ * Process-wide cache of FloatingActionButton background drawables. Buttons with identical
+ * style share a single {@link Drawable.ConstantState}, so only the first one pays for building
+ * the layer stack. The cache is dropped when the system asks the app to trim memory.
+ */
+final class BackgroundCache {
+
+    private static final int MAX_ENTRIES = 32;
+
+    private static final LruCache<Key, Drawable.ConstantState> sCache = new LruCache<>(MAX_ENTRIES);
+
+    private static boolean sCallbacksRegistered;
+
+    private BackgroundCache() {
+    }
+
+    static Drawable.ConstantState get(Key key) {
+        return sCache.get(key);
+    }
+
+    static void put(Key key, Drawable.ConstantState state) {
+        if (state != null) {
+            sCache.put(key, state);
+        }
+    }
+
+    static void clear() {
+        sCache.evictAll();
+        ShadowCache.clear();
+        IconCache.clear();
+    }
+
+    static synchronized void registerTrimCallbacks(Context context) {
+        if (sCallbacksRegistered) return;
+
+        Context appContext = context.getApplicationContext();
+        if (appContext == null) return;
+
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    clear();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        });
+        sCallbacksRegistered = true;
+    }
+
+    static final class Key {
+        private final int mSize;
+        private final int mColorNormal;
+        private final int mColorPressed;
+        private final int mColorDisabled;
+        private final boolean mStrokeVisible;
+        private final float mShadowRadius;
+        private final float mShadowOffset;
+        private final float mDensity;
+
+        Key(int size, int colorNormal, int colorPressed, int colorDisabled, boolean strokeVisible,
+            float shadowRadius, float shadowOffset, float density) {
+            mSize = size;
+            mColorNormal = colorNormal;
+            mColorPressed = colorPressed;
+            mColorDisabled = colorDisabled;
+            mStrokeVisible = strokeVisible;
+            mShadowRadius = shadowRadius;
+            mShadowOffset = shadowOffset;
+            mDensity = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return mSize == key.mSize
+                    && mColorNormal == key.mColorNormal
+                    && mColorPressed == key.mColorPressed
+                    && mColorDisabled == key.mColorDisabled
+                    && mStrokeVisible == key.mStrokeVisible
+                    && Float.compare(mShadowRadius, key.mShadowRadius) == 0
+                    && Float.compare(mShadowOffset, key.mShadowOffset) == 0
+                    && Float.compare(mDensity, key.mDensity) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mSize;
+            result = 31 * result + mColorNormal;
+            result = 31 * result + mColorPressed;
+            result = 31 * result + mColorDisabled;
+            result = 31 * result + (mStrokeVisible ? 1 : 0);
+            result = 31 * result + Float.floatToIntBits(mShadowRadius);
+            result = 31 * result + Float.floatToIntBits(mShadowOffset);
+            result = 31 * result + Float.floatToIntBits(mDensity);
+            return result;
+        }
+    }
+}
@@ -1,9 +1,23 @@
 package com.getbase.floatingactionbutton;
 
 import android.graphics.Color;
+import android.util.SparseArray;
 
 public final class ColorUtils {
 
+    public static final int PALETTE_PRESSED = 0;
+    public static final int PALETTE_TOP_STROKE = 1;
+    public static final int PALETTE_TOP_STROKE_HALF_TRANSPARENT = 2;
+    public static final int PALETTE_BOTTOM_STROKE = 3;
+    public static final int PALETTE_BOTTOM_STROKE_HALF_TRANSPARENT = 4;
+
+    public static final int PALETTE_SIZE = 5;
+
+    private static final int MAX_CACHED_PALETTES = 64;
+
+    private static final SparseArray<int[]> sPalettes = new SparseArray<>(MAX_CACHED_PALETTES);
+    private static final float[] sHsv = new float[3];
+
     public static int opacityToAlpha(float opacity) {
         return (int) (255f * opacity);
     }
@@ -17,12 +31,59 @@ public final class ColorUtils {
     }
 
     public static int adjustColorBrightness(int argb, float factor) {
-        float[] hsv = new float[3];
-        Color.colorToHSV(argb, hsv);
+        synchronized (sHsv) {
+            Color.colorToHSV(argb, sHsv);
+
+            sHsv[2] = Math.min(sHsv[2] * factor, 1f);
+
+            return Color.HSVToColor(Color.alpha(argb), sHsv);
+        }
+    }
+
+    /**
+     * Copies the colors derived from the given base color into out, indexed with the PALETTE_*
+     * constants. Stroke colors are derived from the opaque version of the base color.
+     *
+     * @return out
+     */
+    public static int[] getPalette(int argb, int[] out) {
+        if (out.length < PALETTE_SIZE) {
+            throw new IllegalArgumentException("out must have room for " + PALETTE_SIZE + " colors");
+        }
+        System.arraycopy(getPalette(argb), 0, out, 0, PALETTE_SIZE);
+        return out;
+    }
+
+    /**
+     * Same as {@link #getPalette(int, int[])}, but returns the cached array shared by all buttons,
+     * which must not be modified.
+     */
+    static int[] getPalette(int argb) {
+        synchronized (sPalettes) {
+            int[] palette = sPalettes.get(argb);
+            if (palette == null) {
+                palette = createPalette(argb);
+                if (sPalettes.size() >= MAX_CACHED_PALETTES) {
+                    sPalettes.clear();
+                }
+                sPalettes.put(argb, palette);
+            }
+            return palette;
+        }
+    }
 
-        hsv[2] = Math.min(hsv[2] * factor, 1f);
+    private static int[] createPalette(int argb) {
+        int opaqueColor = opaque(argb);
+        int topStrokeColor = lightenColor(opaqueColor);
+        int bottomStrokeColor = darkenColor(opaqueColor);
 
-        return Color.HSVToColor(Color.alpha(argb), hsv);
+        int[] palette = new int[PALETTE_SIZE];
+        palette[PALETTE_PRESSED] = darkenColor(argb);
+        palette[PALETTE_TOP_STROKE] = topStrokeColor;
+        palette[PALETTE_TOP_STROKE_HALF_TRANSPARENT] = halfTransparent(topStrokeColor);
+        palette[PALETTE_BOTTOM_STROKE] = bottomStrokeColor;
+        palette[PALETTE_BOTTOM_STROKE_HALF_TRANSPARENT] = halfTransparent(bottomStrokeColor);
+        return palette;
     }
 
     public static int halfTransparent(int argb) {
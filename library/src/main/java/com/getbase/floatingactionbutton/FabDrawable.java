@@ -0,0 +1,460 @@
+package com.getbase.floatingactionbutton;
+
+import android.annotation.TargetApi;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LinearGradient;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * FloatingActionButton background which draws the shadow, state dependent fill, inner gradient
+ * stroke, outer stroke and icon in a single pass. The style is immutable and lives in a shared
+ * {@link ConstantState}, only the icon and the current state belong to the drawable itself.
+ */
+class FabDrawable extends Drawable implements Drawable.Callback {
+
+    private static final int STATE_NORMAL = 0;
+    private static final int STATE_PRESSED = 1;
+    private static final int STATE_DISABLED = 2;
+
+    private static final float[] STROKE_GRADIENT_POSITIONS = {0f, 0.2f, 0.5f, 0.8f, 1f};
+    private static final int OUTER_STROKE_ALPHA = ColorUtils.opacityToAlpha(0.02f);
+
+    private final FabState mState;
+
+    private final Paint mFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mInnerStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mOuterStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mCompositePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final RectF mCircleRect = new RectF();
+    private final RectF mInnerStrokeRect = new RectF();
+    private final RectF mOuterStrokeRect = new RectF();
+    private final Rect mIconBounds = new Rect();
+    private final Rect mOutlineBounds = new Rect();
+
+    private final Shader[] mStrokeShaders = new Shader[3];
+
+    @Nullable
+    private final Drawable mShadow;
+    @Nullable
+    private Drawable mIcon;
+
+    private int mStateIndex;
+    private int mAlpha = 255;
+    private boolean mOffscreenTranslucency;
+
+    FabDrawable(@Nullable Drawable shadow, int colorNormal, int colorPressed, int colorDisabled,
+                boolean strokeVisible, float strokeWidth, float circleSize, float iconSize,
+                float shadowRadius, float shadowOffset) {
+        this(new FabState(shadow != null ? shadow.getConstantState() : null,
+                colorNormal, colorPressed, colorDisabled, strokeVisible,
+                strokeWidth, circleSize, iconSize, shadowRadius, shadowOffset), shadow);
+    }
+
+    private FabDrawable(FabState state, @Nullable Drawable shadow) {
+        mState = state;
+        mShadow = shadow;
+        if (mShadow != null) {
+            mShadow.setCallback(this);
+        }
+
+        mFillPaint.setStyle(Style.FILL);
+
+        mInnerStrokePaint.setStyle(Style.STROKE);
+        mInnerStrokePaint.setStrokeWidth(state.mStrokeWidth);
+
+        mOuterStrokePaint.setStyle(Style.STROKE);
+        mOuterStrokePaint.setStrokeWidth(state.mStrokeWidth);
+        mOuterStrokePaint.setColor(Color.GREEN);
+
+        mStateIndex = resolveStateIndex(getState());
+        updatePaints();
+    }
+
+    void setIcon(@Nullable Drawable icon) {
+        if (mIcon == icon) return;
+
+        if (mIcon != null) {
+            mIcon.setCallback(null);
+        }
+        mIcon = icon;
+        if (mIcon != null) {
+            mIcon.setCallback(this);
+            mIcon.setBounds(mIconBounds);
+            mIcon.setState(getState());
+            mIcon.setAlpha(mAlpha);
+        }
+        invalidateSelf();
+    }
+
+    @Nullable
+    Drawable getIcon() {
+        return mIcon;
+    }
+
+    /**
+     * Translucent fills with visible strokes have to be composited before the alpha is applied.
+     * By default the composited circle is rendered once into a bitmap shared by all buttons with
+     * the same style. Enabling offscreen translucency uses Canvas.saveLayerAlpha() on every draw
+     * instead, which doesn't depend on the canvas transformation but allocates a layer per frame.
+     */
+    void setOffscreenTranslucency(boolean offscreenTranslucency) {
+        if (mOffscreenTranslucency != offscreenTranslucency) {
+            mOffscreenTranslucency = offscreenTranslucency;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (mShadow != null) {
+            mShadow.draw(canvas);
+        }
+
+        final int alpha = mState.mAlphas[mStateIndex];
+        final boolean translucent = mState.mStrokeVisible && alpha < 255;
+
+        if (translucent && !mOffscreenTranslucency) {
+            Bitmap composite = mState.getCompositeCircle(mStateIndex, (int) mCircleRect.width(), (int) mCircleRect.height());
+            mCompositePaint.setAlpha(alpha * mAlpha / 255);
+            canvas.drawBitmap(composite, mCircleRect.left, mCircleRect.top, mCompositePaint);
+        } else {
+            int saveCount = 0;
+            if (translucent) {
+                saveCount = canvas.saveLayerAlpha(mCircleRect.left, mCircleRect.top, mCircleRect.right, mCircleRect.bottom,
+                        alpha, Canvas.ALL_SAVE_FLAG);
+            }
+
+            canvas.drawOval(mCircleRect, mFillPaint);
+            if (mState.mStrokeVisible) {
+                mInnerStrokePaint.setShader(getStrokeShader());
+                canvas.drawOval(mInnerStrokeRect, mInnerStrokePaint);
+            }
+
+            if (translucent) {
+                canvas.restoreToCount(saveCount);
+            }
+        }
+
+        canvas.drawOval(mOuterStrokeRect, mOuterStrokePaint);
+
+        if (mIcon != null) {
+            mIcon.draw(canvas);
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        final FabState state = mState;
+        final float halfStrokeWidth = state.mStrokeWidth / 2f;
+
+        int circleInsetHorizontal = (int) (state.mShadowRadius);
+        int circleInsetTop = (int) (state.mShadowRadius - state.mShadowOffset);
+        int circleInsetBottom = (int) (state.mShadowRadius + state.mShadowOffset);
+
+        mCircleRect.set(
+                bounds.left + circleInsetHorizontal,
+                bounds.top + circleInsetTop,
+                bounds.right - circleInsetHorizontal,
+                bounds.bottom - circleInsetBottom);
+
+        int innerStrokeInset = (int) halfStrokeWidth;
+        mInnerStrokeRect.set(
+                mCircleRect.left + innerStrokeInset,
+                mCircleRect.top + innerStrokeInset,
+                mCircleRect.right - innerStrokeInset,
+                mCircleRect.bottom - innerStrokeInset);
+
+        mOuterStrokeRect.set(
+                bounds.left + outerStrokeInset(circleInsetHorizontal, halfStrokeWidth),
+                bounds.top + outerStrokeInset(circleInsetTop, halfStrokeWidth),
+                bounds.right - outerStrokeInset(circleInsetHorizontal, halfStrokeWidth),
+                bounds.bottom - outerStrokeInset(circleInsetBottom, halfStrokeWidth));
+
+        int iconOffset = (int) (state.mCircleSize - state.mIconSize) / 2;
+        mIconBounds.set(
+                bounds.left + circleInsetHorizontal + iconOffset,
+                bounds.top + circleInsetTop + iconOffset,
+                bounds.right - circleInsetHorizontal - iconOffset,
+                bounds.bottom - circleInsetBottom - iconOffset);
+
+        mCircleRect.round(mOutlineBounds);
+
+        if (mShadow != null) {
+            mShadow.setBounds(bounds);
+        }
+        if (mIcon != null) {
+            mIcon.setBounds(mIconBounds);
+        }
+
+        mStrokeShaders[STATE_NORMAL] = null;
+        mStrokeShaders[STATE_PRESSED] = null;
+        mStrokeShaders[STATE_DISABLED] = null;
+    }
+
+    /**
+     * The stroke is centered on the circle's edge. Without a shadow around the circle, as with the
+     * elevation shadow, the edge is the edge of the bounds, so the stroke moves inwards by half its
+     * width to stay within them.
+     */
+    private static int outerStrokeInset(int circleInset, float halfStrokeWidth) {
+        return Math.max((int) Math.ceil(halfStrokeWidth), (int) (circleInset - halfStrokeWidth));
+    }
+
+    @VisibleForTesting
+    RectF getOuterStrokeRect() {
+        return mOuterStrokeRect;
+    }
+
+    @Override
+    public boolean isStateful() {
+        return true;
+    }
+
+    @Override
+    protected boolean onStateChange(int[] stateSet) {
+        boolean changed = false;
+        if (mIcon != null && mIcon.isStateful()) {
+            changed = mIcon.setState(stateSet);
+        }
+
+        int stateIndex = resolveStateIndex(stateSet);
+        if (stateIndex != mStateIndex) {
+            mStateIndex = stateIndex;
+            updatePaints();
+            changed = true;
+        }
+
+        if (changed) {
+            invalidateSelf();
+        }
+        return changed;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            updatePaints();
+            if (mShadow != null) {
+                mShadow.setAlpha(alpha);
+            }
+            if (mIcon != null) {
+                mIcon.setAlpha(alpha);
+            }
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mFillPaint.setColorFilter(colorFilter);
+        mInnerStrokePaint.setColorFilter(colorFilter);
+        mOuterStrokePaint.setColorFilter(colorFilter);
+        mCompositePaint.setColorFilter(colorFilter);
+        if (mShadow != null) {
+            mShadow.setColorFilter(colorFilter);
+        }
+        if (mIcon != null) {
+            mIcon.setColorFilter(colorFilter);
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * Provides the circle to the framework, which renders the elevation shadow from it.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void getOutline(@NonNull Outline outline) {
+        outline.setOval(mOutlineBounds);
+        outline.setAlpha(mState.mAlphas[mStateIndex] * mAlpha / (255f * 255f));
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mShadow != null ? mShadow.getIntrinsicWidth() : -1;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mShadow != null ? mShadow.getIntrinsicHeight() : -1;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        return mState;
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        invalidateSelf();
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
+    }
+
+    private void updatePaints() {
+        mFillPaint.setColor(mState.mOpaqueColors[mStateIndex]);
+        mFillPaint.setAlpha(mAlpha);
+        mInnerStrokePaint.setAlpha(mAlpha);
+        mOuterStrokePaint.setAlpha(OUTER_STROKE_ALPHA * mAlpha / 255);
+    }
+
+    private Shader getStrokeShader() {
+        Shader shader = mStrokeShaders[mStateIndex];
+        if (shader == null) {
+            shader = createStrokeShader(mInnerStrokeRect, mState.mStrokeColors[mStateIndex]);
+            mStrokeShaders[mStateIndex] = shader;
+        }
+        return shader;
+    }
+
+    private static Shader createStrokeShader(RectF strokeRect, int[] strokeColors) {
+        float centerX = strokeRect.left + (int) strokeRect.width() / 2;
+        return new LinearGradient(centerX, strokeRect.top, centerX, strokeRect.bottom,
+                strokeColors,
+                STROKE_GRADIENT_POSITIONS,
+                TileMode.CLAMP
+        );
+    }
+
+    private static int resolveStateIndex(int[] stateSet) {
+        boolean enabled = false;
+        boolean pressed = false;
+        for (int state : stateSet) {
+            if (state == android.R.attr.state_enabled) {
+                enabled = true;
+            } else if (state == android.R.attr.state_pressed) {
+                pressed = true;
+            }
+        }
+
+        if (!enabled) return STATE_DISABLED;
+        return pressed ? STATE_PRESSED : STATE_NORMAL;
+    }
+
+    static final class FabState extends ConstantState {
+        @Nullable
+        private final ConstantState mShadowState;
+        private final boolean mStrokeVisible;
+        private final float mStrokeWidth;
+        private final float mCircleSize;
+        private final float mIconSize;
+        private final float mShadowRadius;
+        private final float mShadowOffset;
+
+        private final int[] mOpaqueColors = new int[3];
+        private final int[] mAlphas = new int[3];
+        private final int[][] mStrokeColors = new int[3][];
+        private final Bitmap[] mCompositeCircles = new Bitmap[3];
+
+        FabState(@Nullable ConstantState shadowState, int colorNormal, int colorPressed, int colorDisabled,
+                 boolean strokeVisible, float strokeWidth, float circleSize, float iconSize,
+                 float shadowRadius, float shadowOffset) {
+            mShadowState = shadowState;
+            mStrokeVisible = strokeVisible;
+            mStrokeWidth = strokeWidth;
+            mCircleSize = circleSize;
+            mIconSize = iconSize;
+            mShadowRadius = shadowRadius;
+            mShadowOffset = shadowOffset;
+
+            setStateColor(STATE_NORMAL, colorNormal);
+            setStateColor(STATE_PRESSED, colorPressed);
+            setStateColor(STATE_DISABLED, colorDisabled);
+        }
+
+        private void setStateColor(int stateIndex, int color) {
+            int opaqueColor = ColorUtils.opaque(color);
+            mOpaqueColors[stateIndex] = opaqueColor;
+            mAlphas[stateIndex] = Color.alpha(color);
+
+            int[] palette = ColorUtils.getPalette(color);
+            mStrokeColors[stateIndex] = new int[]{
+                    palette[ColorUtils.PALETTE_TOP_STROKE],
+                    palette[ColorUtils.PALETTE_TOP_STROKE_HALF_TRANSPARENT],
+                    opaqueColor,
+                    palette[ColorUtils.PALETTE_BOTTOM_STROKE_HALF_TRANSPARENT],
+                    palette[ColorUtils.PALETTE_BOTTOM_STROKE]
+            };
+        }
+
+        synchronized Bitmap getCompositeCircle(int stateIndex, int width, int height) {
+            Bitmap bitmap = mCompositeCircles[stateIndex];
+            if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                bitmap = Bitmap.createBitmap(Math.max(width, 1), Math.max(height, 1), Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+
+                RectF circleRect = new RectF();
+                circleRect.set(0, 0, width, height);
+
+                Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+                fillPaint.setColor(mOpaqueColors[stateIndex]);
+                canvas.drawOval(circleRect, fillPaint);
+
+                int innerStrokeInset = (int) (mStrokeWidth / 2f);
+                RectF strokeRect = new RectF();
+                strokeRect.set(innerStrokeInset, innerStrokeInset, width - innerStrokeInset, height - innerStrokeInset);
+
+                Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+                strokePaint.setStyle(Style.STROKE);
+                strokePaint.setStrokeWidth(mStrokeWidth);
+                strokePaint.setShader(createStrokeShader(strokeRect, mStrokeColors[stateIndex]));
+                canvas.drawOval(strokeRect, strokePaint);
+
+                mCompositeCircles[stateIndex] = bitmap;
+            }
+            return bitmap;
+        }
+
+        @Override
+        public Drawable newDrawable() {
+            return newDrawable(null);
+        }
+
+        @Override
+        public Drawable newDrawable(Resources res) {
+            Drawable shadow = mShadowState != null ? mShadowState.newDrawable(res) : null;
+            return new FabDrawable(this, shadow);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.annotation.MainThread;
+
+/**
+ * Immutable snapshot of all library dimensions in pixels. It's resolved once per configuration
+ * and shared by every FloatingActionButton and FloatingActionsMenu, so they read plain fields
+ * instead of looking the dimensions up in the resources.
+ */
+final class FabMetrics {
+
+    private static FabMetrics sCurrent;
+
+    private final Configuration mConfiguration;
+    private final float mDensity;
+
+    final float mSizeNormal;
+    final float mSizeMini;
+    final float mIconSize;
+    final float mStrokeWidth;
+    final float mShadowRadius;
+    final float mShadowOffset;
+    final int mShadowOffsetPixelSize;
+    final float mElevation;
+    final float mActionsSpacing;
+    final int mActionsSpacingPixelSize;
+    final int mLabelsMarginPixelSize;
+
+    private FabMetrics(Resources res) {
+        mConfiguration = new Configuration(res.getConfiguration());
+        mDensity = res.getDisplayMetrics().density;
+
+        mSizeNormal = res.getDimension(R.dimen.fab_size_normal);
+        mSizeMini = res.getDimension(R.dimen.fab_size_mini);
+        mIconSize = res.getDimension(R.dimen.fab_icon_size);
+        mStrokeWidth = res.getDimension(R.dimen.fab_stroke_width);
+        mShadowRadius = res.getDimension(R.dimen.fab_shadow_radius);
+        mShadowOffset = res.getDimension(R.dimen.fab_shadow_offset);
+        mShadowOffsetPixelSize = res.getDimensionPixelSize(R.dimen.fab_shadow_offset);
+        mElevation = res.getDimension(R.dimen.fab_elevation);
+        mActionsSpacing = res.getDimension(R.dimen.fab_actions_spacing);
+        mActionsSpacingPixelSize = res.getDimensionPixelSize(R.dimen.fab_actions_spacing);
+        mLabelsMarginPixelSize = res.getDimensionPixelSize(R.dimen.fab_labels_margin);
+    }
+
+    /**
+     * Returns the snapshot for the current configuration of the given resources, resolving a new
+     * one only when the configuration or density changed since the last call.
+     */
+    @MainThread
+    static FabMetrics get(Resources res) {
+        FabMetrics metrics = sCurrent;
+        if (metrics == null
+                || metrics.mDensity != res.getDisplayMetrics().density
+                || !metrics.mConfiguration.equals(res.getConfiguration())) {
+            metrics = new FabMetrics(res);
+            sCurrent = metrics;
+        }
+        return metrics;
+    }
+}
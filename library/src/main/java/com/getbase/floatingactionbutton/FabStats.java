@@ -0,0 +1,132 @@
+package com.getbase.floatingactionbutton;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters of the expensive work done by the library. The counters are always on,
+ * {@link #snapshot()} returns their current values. The same sections can additionally be traced
+ * with {@link android.os.Trace} by enabling {@link #setTracingEnabled(boolean)}.
+ */
+public final class FabStats {
+
+    static final int BACKGROUND_REBUILDS = 0;
+    static final int ICON_LOADS = 1;
+    static final int MENU_MEASURES = 2;
+    static final int MENU_LAYOUTS = 3;
+    static final int TOUCH_DELEGATE_REBUILDS = 4;
+    static final int LABEL_CREATIONS = 5;
+    static final int ICON_CACHE_HITS = 6;
+    static final int ICON_CACHE_MISSES = 7;
+    private static final int COUNTER_COUNT = 8;
+
+    static final String SECTION_UPDATE_BACKGROUND = "FAB#updateBackground";
+    static final String SECTION_LOAD_ICON = "FAB#loadIcon";
+    static final String SECTION_MENU_MEASURE = "FAM#onMeasure";
+    static final String SECTION_MENU_LAYOUT = "FAM#onLayout";
+    static final String SECTION_CREATE_LABELS = "FAM#createLabels";
+
+    private static final AtomicLongArray sCounters = new AtomicLongArray(COUNTER_COUNT);
+    private static volatile boolean sTracingEnabled;
+
+    private final long[] mValues;
+
+    private FabStats(long[] values) {
+        mValues = values;
+    }
+
+    public static FabStats snapshot() {
+        long[] values = new long[COUNTER_COUNT];
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            values[i] = sCounters.get(i);
+        }
+        return new FabStats(values);
+    }
+
+    public static void reset() {
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            sCounters.set(i, 0);
+        }
+    }
+
+    /**
+     * Wraps the counted sections in systrace sections. Only has an effect on API 18 and later.
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        sTracingEnabled = enabled;
+    }
+
+    public static boolean isTracingEnabled() {
+        return sTracingEnabled;
+    }
+
+    public long getBackgroundRebuilds() {
+        return mValues[BACKGROUND_REBUILDS];
+    }
+
+    public long getIconLoads() {
+        return mValues[ICON_LOADS];
+    }
+
+    public long getMenuMeasures() {
+        return mValues[MENU_MEASURES];
+    }
+
+    public long getMenuLayouts() {
+        return mValues[MENU_LAYOUTS];
+    }
+
+    public long getTouchDelegateRebuilds() {
+        return mValues[TOUCH_DELEGATE_REBUILDS];
+    }
+
+    public long getLabelCreations() {
+        return mValues[LABEL_CREATIONS];
+    }
+
+    public long getIconCacheHits() {
+        return mValues[ICON_CACHE_HITS];
+    }
+
+    public long getIconCacheMisses() {
+        return mValues[ICON_CACHE_MISSES];
+    }
+
+    @Override
+    public String toString() {
+        return "FabStats{backgroundRebuilds=" + getBackgroundRebuilds()
+                + ", iconLoads=" + getIconLoads()
+                + ", menuMeasures=" + getMenuMeasures()
+                + ", menuLayouts=" + getMenuLayouts()
+                + ", touchDelegateRebuilds=" + getTouchDelegateRebuilds()
+                + ", labelCreations=" + getLabelCreations()
+                + ", iconCacheHits=" + getIconCacheHits()
+                + ", iconCacheMisses=" + getIconCacheMisses()
+                + '}';
+    }
+
+    static void increment(int counter) {
+        sCounters.incrementAndGet(counter);
+    }
+
+    /**
+     * @return whether a section was started, to be passed to {@link #endSection(boolean)}.
+     */
+    @SuppressLint("NewApi")
+    static boolean beginSection(String name) {
+        if (!sTracingEnabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) return false;
+
+        Trace.beginSection(name);
+        return true;
+    }
+
+    @SuppressLint("NewApi")
+    static void endSection(boolean started) {
+        if (started) {
+            Trace.endSection();
+        }
+    }
+}
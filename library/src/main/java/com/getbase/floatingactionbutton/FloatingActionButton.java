@@ -4,15 +4,12 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.*;
-import android.graphics.Paint.Style;
-import android.graphics.Shader.TileMode;
 import android.graphics.drawable.*;
-import android.graphics.drawable.ShapeDrawable.ShaderFactory;
-import android.graphics.drawable.shapes.OvalShape;
 import android.os.Build;
 import android.os.Build.VERSION_CODES;
 import android.support.annotation.*;
 import android.util.AttributeSet;
+import android.view.ViewParent;
 import android.widget.ImageButton;
 import android.widget.TextView;
 
@@ -45,6 +42,13 @@ public class FloatingActionButton extends ImageButton {
     private float mShadowOffset;
     private int mDrawableSize;
 
+    private boolean mOffscreenTranslucency;
+    private boolean mUseElevation;
+
+    private FabMetrics mMetrics;
+
+    private int mBackgroundUpdateCount;
+
     public FloatingActionButton(Context context) {
         this(context, null);
     }
@@ -72,6 +76,7 @@ public class FloatingActionButton extends ImageButton {
             label.setVisibility(visibility);
         }
         super.setVisibility(visibility);
+        invalidateMenuMeasure();
     }
 
     public void setSize(@FAB_SIZE int size) {
@@ -96,7 +101,7 @@ public class FloatingActionButton extends ImageButton {
         if (mIcon != icon) {
             mIcon = icon;
             mIconDrawable = null;
-            updateBackground();
+            updateIcon();
         }
     }
 
@@ -104,7 +109,7 @@ public class FloatingActionButton extends ImageButton {
         if (mIconDrawable != iconDrawable) {
             mIcon = 0;
             mIconDrawable = iconDrawable;
-            updateBackground();
+            updateIcon();
         }
     }
 
@@ -173,85 +178,209 @@ public class FloatingActionButton extends ImageButton {
         return mStrokeVisible;
     }
 
+    /**
+     * Chooses how translucent colors are composited with the stroke. The default draws a cached,
+     * pre-composited bitmap of the circle. Offscreen translucency renders the circle through
+     * Canvas.saveLayerAlpha() on every frame, which is exact under any canvas transformation.
+     */
+    public void setOffscreenTranslucencyEnabled(boolean enabled) {
+        if (mOffscreenTranslucency != enabled) {
+            mOffscreenTranslucency = enabled;
+            Drawable background = getBackground();
+            if (background instanceof FabDrawable) {
+                ((FabDrawable) background).setOffscreenTranslucency(enabled);
+            }
+        }
+    }
+
+    public boolean isOffscreenTranslucencyEnabled() {
+        return mOffscreenTranslucency;
+    }
+
+    /**
+     * On API 21+ the shadow is rendered by the framework from the circle outline and the view
+     * elevation, and the view is only as large as the circle. The shadow then draws outside the
+     * view bounds, so parents shouldn't clip it; FloatingActionsMenu reserves room for the shadows
+     * of its buttons. Disable this to keep the bitmap shadow, which is always used on older
+     * platforms.
+     */
+    public void setUseElevation(boolean useElevation) {
+        if (mUseElevation != useElevation) {
+            mUseElevation = useElevation;
+            updateElevation();
+            updateDrawableSize();
+            requestLayout();
+            updateBackground();
+        }
+    }
+
+    public boolean getUseElevation() {
+        return mUseElevation;
+    }
+
+    /**
+     * @return true if the shadow is rendered from the view elevation instead of a bitmap.
+     */
+    boolean hasElevationShadow() {
+        return mUseElevation && Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP;
+    }
+
+    /**
+     * Sets the shadow radius in pixels. The shadow is rendered procedurally, so any value works;
+     * the button grows by the radius on each side. Ignored while the elevation shadow is used.
+     */
+    public void setShadowRadius(float shadowRadius) {
+        if (mShadowRadius != shadowRadius) {
+            mShadowRadius = shadowRadius;
+            updateDrawableSize();
+            requestLayout();
+            updateBackground();
+        }
+    }
+
+    public float getShadowRadius() {
+        return mShadowRadius;
+    }
+
+    /**
+     * Sets the vertical shadow offset in pixels. Ignored while the elevation shadow is used.
+     */
+    public void setShadowOffset(float shadowOffset) {
+        if (mShadowOffset != shadowOffset) {
+            mShadowOffset = shadowOffset;
+            updateBackground();
+        }
+    }
+
+    public float getShadowOffset() {
+        return mShadowOffset;
+    }
+
     public void setTitle(String title) {
         mTitle = title;
         TextView label = getLabelView();
         if (label != null) {
             label.setText(title);
         }
+        invalidateMenuMeasure();
     }
 
     public String getTitle() {
         return mTitle;
     }
 
+    /**
+     * Starts a batch of style changes, which are applied with a single background rebuild when
+     * {@link Editor#apply()} is called.
+     */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    @VisibleForTesting
+    int getBackgroundUpdateCount() {
+        return mBackgroundUpdateCount;
+    }
+
     private void init(Context context, AttributeSet attributeSet) {
         TypedArray attr = context.obtainStyledAttributes(attributeSet, R.styleable.FloatingActionButton, 0, 0);
         mColorNormal = attr.getColor(R.styleable.FloatingActionButton_fab_colorNormal, getColor(android.R.color.holo_blue_dark));
-        mColorPressed = attr.getColor(R.styleable.FloatingActionButton_fab_colorPressed, ColorUtils.darkenColor(mColorNormal));
+        mColorPressed = attr.getColor(R.styleable.FloatingActionButton_fab_colorPressed, ColorUtils.getPalette(mColorNormal)[ColorUtils.PALETTE_PRESSED]);
         mColorDisabled = attr.getColor(R.styleable.FloatingActionButton_fab_colorDisabled, getColor(android.R.color.darker_gray));
         mSize = attr.getInt(R.styleable.FloatingActionButton_fab_size, SIZE_NORMAL);
         mIcon = attr.getResourceId(R.styleable.FloatingActionButton_fab_icon, 0);
         mTitle = attr.getString(R.styleable.FloatingActionButton_fab_title);
         mStrokeVisible = attr.getBoolean(R.styleable.FloatingActionButton_fab_stroke_visible, true);
+        mUseElevation = attr.getBoolean(R.styleable.FloatingActionButton_fab_useElevation, true);
         attr.recycle();
 
-        mShadowRadius = getDimension(R.dimen.fab_shadow_radius);
-        mShadowOffset = getDimension(R.dimen.fab_shadow_offset);
+        BackgroundCache.registerTrimCallbacks(context);
+
+        mMetrics = FabMetrics.get(getResources());
+        mShadowRadius = mMetrics.mShadowRadius;
+        mShadowOffset = mMetrics.mShadowOffset;
+        updateElevation();
         updateCircleSize();
         updateDrawableSize();
         updateBackground();
     }
 
     private void updateBackground() {
-        final float strokeWidth = getDimension(R.dimen.fab_stroke_width);
-        final float halfStrokeWidth = strokeWidth / 2f;
-
-        LayerDrawable layerDrawable = new LayerDrawable(
-                new Drawable[]{
-                        getResources().getDrawable(mSize == SIZE_NORMAL ? R.drawable.fab_bg_normal : R.drawable.fab_bg_mini),
-                        createFillDrawable(strokeWidth),
-                        createOuterStrokeDrawable(strokeWidth),
-                        getIconDrawable()
-                });
-
-        int iconOffset = (int) (mCircleSize - getDimension(R.dimen.fab_icon_size)) / 2;
+        mBackgroundUpdateCount++;
+        FabStats.increment(FabStats.BACKGROUND_REBUILDS);
+        boolean traced = FabStats.beginSection(FabStats.SECTION_UPDATE_BACKGROUND);
+        try {
+            rebuildBackground();
+        } finally {
+            FabStats.endSection(traced);
+        }
+    }
 
-        int circleInsetHorizontal = (int) (mShadowRadius);
-        int circleInsetTop = (int) (mShadowRadius - mShadowOffset);
-        int circleInsetBottom = (int) (mShadowRadius + mShadowOffset);
+    private void rebuildBackground() {
+        // with the elevation shadow the drawable is just the circle, without room for a shadow
+        final boolean elevationShadow = hasElevationShadow();
+        final float shadowRadius = elevationShadow ? 0f : mShadowRadius;
+        final float shadowOffset = elevationShadow ? 0f : mShadowOffset;
 
-        layerDrawable.setLayerInset(1,
-                circleInsetHorizontal,
-                circleInsetTop,
-                circleInsetHorizontal,
-                circleInsetBottom);
+        BackgroundCache.Key key = new BackgroundCache.Key(mSize, mColorNormal, mColorPressed, mColorDisabled,
+                mStrokeVisible, shadowRadius, shadowOffset, getResources().getDisplayMetrics().density);
 
-        layerDrawable.setLayerInset(2,
-                (int) (circleInsetHorizontal - halfStrokeWidth),
-                (int) (circleInsetTop - halfStrokeWidth),
-                (int) (circleInsetHorizontal - halfStrokeWidth),
-                (int) (circleInsetBottom - halfStrokeWidth));
+        FabDrawable background;
+        Drawable.ConstantState backgroundState = BackgroundCache.get(key);
+        if (backgroundState != null) {
+            background = (FabDrawable) backgroundState.newDrawable(getResources());
+        } else {
+            background = new FabDrawable(
+                    elevationShadow ? null : new BitmapDrawable(getResources(),
+                            ShadowCache.getShadow((int) mCircleSize, mShadowRadius, mShadowOffset)),
+                    mColorNormal,
+                    mColorPressed,
+                    mColorDisabled,
+                    mStrokeVisible,
+                    mMetrics.mStrokeWidth,
+                    mCircleSize,
+                    mMetrics.mIconSize,
+                    shadowRadius,
+                    shadowOffset);
+            BackgroundCache.put(key, background.getConstantState());
+        }
 
-        layerDrawable.setLayerInset(3,
-                circleInsetHorizontal + iconOffset,
-                circleInsetTop + iconOffset,
-                circleInsetHorizontal + iconOffset,
-                circleInsetBottom + iconOffset);
+        background.setIcon(getIconDrawable());
+        background.setOffscreenTranslucency(mOffscreenTranslucency);
+        setBackgroundCompat(background);
+    }
 
-        setBackgroundCompat(layerDrawable);
+    /**
+     * The icon isn't part of the shared background style, so only the icon layer is swapped.
+     */
+    private void updateIcon() {
+        Drawable background = getBackground();
+        if (background instanceof FabDrawable) {
+            ((FabDrawable) background).setIcon(getIconDrawable());
+        } else {
+            updateBackground();
+        }
     }
 
     Drawable getIconDrawable() {
         if (mIconDrawable != null) {
             return mIconDrawable;
         } else if (mIcon != 0) {
-            return getResources().getDrawable(mIcon);
+            return loadIcon(mIcon);
         } else {
             return new ColorDrawable(Color.TRANSPARENT);
         }
     }
 
+    private Drawable loadIcon(@DrawableRes int icon) {
+        boolean traced = FabStats.beginSection(FabStats.SECTION_LOAD_ICON);
+        try {
+            return IconCache.getDrawable(getResources(), icon);
+        } finally {
+            FabStats.endSection(traced);
+        }
+    }
+
     TextView getLabelView() {
         return (TextView) getTag(R.id.fab_label);
     }
@@ -260,93 +389,27 @@ public class FloatingActionButton extends ImageButton {
         return getResources().getColor(id);
     }
 
-    float getDimension(@DimenRes int id) {
-        return getResources().getDimension(id);
-    }
-
     private void updateCircleSize() {
-        mCircleSize = getDimension(mSize == SIZE_NORMAL ? R.dimen.fab_size_normal : R.dimen.fab_size_mini);
+        mCircleSize = mSize == SIZE_NORMAL ? mMetrics.mSizeNormal : mMetrics.mSizeMini;
     }
 
     private void updateDrawableSize() {
-        mDrawableSize = (int) (mCircleSize + 2 * mShadowRadius);
-    }
-
-    private StateListDrawable createFillDrawable(float strokeWidth) {
-        StateListDrawable drawable = new StateListDrawable();
-        drawable.addState(new int[]{-android.R.attr.state_enabled}, createCircleDrawable(mColorDisabled, strokeWidth));
-        drawable.addState(new int[]{android.R.attr.state_pressed}, createCircleDrawable(mColorPressed, strokeWidth));
-        drawable.addState(new int[]{}, createCircleDrawable(mColorNormal, strokeWidth));
-        return drawable;
-    }
-
-    private Drawable createCircleDrawable(int color, float strokeWidth) {
-        int alpha = Color.alpha(color);
-        int opaqueColor = ColorUtils.opaque(color);
-
-        ShapeDrawable fillDrawable = new ShapeDrawable(new OvalShape());
-
-        final Paint paint = fillDrawable.getPaint();
-        paint.setAntiAlias(true);
-        paint.setColor(opaqueColor);
-
-        Drawable[] layers = {
-                fillDrawable,
-                createInnerStrokesDrawable(opaqueColor, strokeWidth)
-        };
-
-        LayerDrawable drawable = alpha == 255 || !mStrokeVisible
-                ? new LayerDrawable(layers)
-                : new TranslucentLayerDrawable(alpha, layers);
-
-        int halfStrokeWidth = (int) (strokeWidth / 2f);
-        drawable.setLayerInset(1, halfStrokeWidth, halfStrokeWidth, halfStrokeWidth, halfStrokeWidth);
-
-        return drawable;
+        mDrawableSize = (int) (hasElevationShadow() ? mCircleSize : mCircleSize + 2 * mShadowRadius);
     }
 
-    private Drawable createOuterStrokeDrawable(float strokeWidth) {
-        ShapeDrawable shapeDrawable = new ShapeDrawable(new OvalShape());
-
-        final Paint paint = shapeDrawable.getPaint();
-        paint.setAntiAlias(true);
-        paint.setStrokeWidth(strokeWidth);
-        paint.setStyle(Style.STROKE);
-        paint.setColor(Color.GREEN);
-        paint.setAlpha(ColorUtils.opacityToAlpha(0.02f));
-
-        return shapeDrawable;
+    @SuppressLint("NewApi")
+    private void updateElevation() {
+        if (Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+            // the default outline provider takes the circle from FabDrawable.getOutline()
+            setElevation(mUseElevation ? mMetrics.mElevation : 0f);
+        }
     }
 
-    private Drawable createInnerStrokesDrawable(final int color, float strokeWidth) {
-        if (!mStrokeVisible) {
-            return new ColorDrawable(Color.TRANSPARENT);
+    private void invalidateMenuMeasure() {
+        ViewParent parent = getParent();
+        if (parent instanceof FloatingActionsMenu) {
+            ((FloatingActionsMenu) parent).invalidateButtonMeasure(this);
         }
-
-        ShapeDrawable shapeDrawable = new ShapeDrawable(new OvalShape());
-
-        final int bottomStrokeColor = ColorUtils.darkenColor(color);
-        final int bottomStrokeColorHalfTransparent = ColorUtils.halfTransparent(bottomStrokeColor);
-        final int topStrokeColor = ColorUtils.lightenColor(color);
-        final int topStrokeColorHalfTransparent = ColorUtils.halfTransparent(topStrokeColor);
-
-        final Paint paint = shapeDrawable.getPaint();
-        paint.setAntiAlias(true);
-        paint.setStrokeWidth(strokeWidth);
-        paint.setStyle(Style.STROKE);
-        shapeDrawable.setShaderFactory(new ShaderFactory() {
-            @Override
-            public Shader resize(int width, int height) {
-                return new LinearGradient(width / 2, 0, width / 2, height,
-                        new int[]{topStrokeColor, topStrokeColorHalfTransparent, color,
-                                bottomStrokeColorHalfTransparent, bottomStrokeColor},
-                        new float[]{0f, 0.2f, 0.5f, 0.8f, 1f},
-                        TileMode.CLAMP
-                );
-            }
-        });
-
-        return shapeDrawable;
     }
 
     @SuppressWarnings("deprecation")
@@ -359,20 +422,95 @@ public class FloatingActionButton extends ImageButton {
         }
     }
 
-    private static class TranslucentLayerDrawable extends LayerDrawable {
-        private final int mAlpha;
+    public final class Editor {
+        private int mColorNormal = FloatingActionButton.this.mColorNormal;
+        private int mColorPressed = FloatingActionButton.this.mColorPressed;
+        private int mColorDisabled = FloatingActionButton.this.mColorDisabled;
+        private boolean mStrokeVisible = FloatingActionButton.this.mStrokeVisible;
+        private int mSize = FloatingActionButton.this.mSize;
+        @DrawableRes
+        private int mIcon = FloatingActionButton.this.mIcon;
+        private Drawable mIconDrawable = FloatingActionButton.this.mIconDrawable;
+
+        private Editor() {
+        }
+
+        public Editor colorNormal(int color) {
+            mColorNormal = color;
+            return this;
+        }
+
+        public Editor colorPressed(int color) {
+            mColorPressed = color;
+            return this;
+        }
 
-        public TranslucentLayerDrawable(int alpha, Drawable... layers) {
-            super(layers);
-            mAlpha = alpha;
+        public Editor colorDisabled(int color) {
+            mColorDisabled = color;
+            return this;
         }
 
-        @Override
-        public void draw(Canvas canvas) {
-            Rect bounds = getBounds();
-            canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom, mAlpha, Canvas.ALL_SAVE_FLAG);
-            super.draw(canvas);
-            canvas.restore();
+        public Editor strokeVisible(boolean visible) {
+            mStrokeVisible = visible;
+            return this;
+        }
+
+        public Editor size(@FAB_SIZE int size) {
+            if (size != SIZE_MINI && size != SIZE_NORMAL) {
+                throw new IllegalArgumentException("Use @FAB_SIZE constants only!");
+            }
+            mSize = size;
+            return this;
+        }
+
+        public Editor icon(@DrawableRes int icon) {
+            if (mIcon != icon) {
+                mIcon = icon;
+                mIconDrawable = null;
+            }
+            return this;
+        }
+
+        public Editor iconDrawable(@NonNull Drawable iconDrawable) {
+            if (mIconDrawable != iconDrawable) {
+                mIcon = 0;
+                mIconDrawable = iconDrawable;
+            }
+            return this;
+        }
+
+        public void apply() {
+            FloatingActionButton fab = FloatingActionButton.this;
+            boolean sizeChanged = fab.mSize != mSize;
+            boolean styleChanged = sizeChanged
+                    || fab.mColorNormal != mColorNormal
+                    || fab.mColorPressed != mColorPressed
+                    || fab.mColorDisabled != mColorDisabled
+                    || fab.mStrokeVisible != mStrokeVisible;
+            boolean iconChanged = fab.mIcon != mIcon
+                    || fab.mIconDrawable != mIconDrawable;
+
+            if (!styleChanged && !iconChanged) return;
+
+            fab.mColorNormal = mColorNormal;
+            fab.mColorPressed = mColorPressed;
+            fab.mColorDisabled = mColorDisabled;
+            fab.mStrokeVisible = mStrokeVisible;
+            fab.mSize = mSize;
+            fab.mIcon = mIcon;
+            fab.mIconDrawable = mIconDrawable;
+
+            if (!styleChanged) {
+                updateIcon();
+                return;
+            }
+
+            if (sizeChanged) {
+                updateCircleSize();
+                updateDrawableSize();
+                requestLayout();
+            }
+            updateBackground();
         }
     }
 }
@@ -0,0 +1,126 @@
+package com.getbase.floatingactionbutton;
+
+import android.support.annotation.DrawableRes;
+import android.support.annotation.IdRes;
+import android.support.annotation.Nullable;
+
+/**
+ * Immutable description of a secondary button of a {@link FloatingActionsMenu}, see
+ * {@link FloatingActionsMenu#setItems(java.util.List)}. The id is stable across updates and is
+ * used as the id of the button view.
+ */
+public final class FloatingActionItem {
+
+    private final int mId;
+    private final String mTitle;
+    @DrawableRes
+    private final int mIcon;
+    private final int mColorNormal;
+    private final int mColorPressed;
+    private final int mColorDisabled;
+    private final boolean mHasColorNormal;
+    private final boolean mHasColorPressed;
+    private final boolean mHasColorDisabled;
+
+    private FloatingActionItem(Builder builder) {
+        mId = builder.mId;
+        mTitle = builder.mTitle;
+        mIcon = builder.mIcon;
+        mColorNormal = builder.mColorNormal;
+        mColorPressed = builder.mColorPressed;
+        mColorDisabled = builder.mColorDisabled;
+        mHasColorNormal = builder.mHasColorNormal;
+        mHasColorPressed = builder.mHasColorPressed;
+        mHasColorDisabled = builder.mHasColorDisabled;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return mTitle;
+    }
+
+    @DrawableRes
+    public int getIcon() {
+        return mIcon;
+    }
+
+    public int getColorNormal() {
+        return mColorNormal;
+    }
+
+    public int getColorPressed() {
+        return mColorPressed;
+    }
+
+    public int getColorDisabled() {
+        return mColorDisabled;
+    }
+
+    boolean hasColorNormal() {
+        return mHasColorNormal;
+    }
+
+    boolean hasColorPressed() {
+        return mHasColorPressed;
+    }
+
+    boolean hasColorDisabled() {
+        return mHasColorDisabled;
+    }
+
+    /**
+     * Colors which aren't set keep the defaults of {@link FloatingActionButton}.
+     */
+    public static final class Builder {
+        private final int mId;
+        private String mTitle;
+        @DrawableRes
+        private int mIcon;
+        private int mColorNormal;
+        private int mColorPressed;
+        private int mColorDisabled;
+        private boolean mHasColorNormal;
+        private boolean mHasColorPressed;
+        private boolean mHasColorDisabled;
+
+        public Builder(@IdRes int id) {
+            mId = id;
+        }
+
+        public Builder title(@Nullable String title) {
+            mTitle = title;
+            return this;
+        }
+
+        public Builder icon(@DrawableRes int icon) {
+            mIcon = icon;
+            return this;
+        }
+
+        public Builder colorNormal(int color) {
+            mColorNormal = color;
+            mHasColorNormal = true;
+            return this;
+        }
+
+        public Builder colorPressed(int color) {
+            mColorPressed = color;
+            mHasColorPressed = true;
+            return this;
+        }
+
+        public Builder colorDisabled(int color) {
+            mColorDisabled = color;
+            mHasColorDisabled = true;
+            return this;
+        }
+
+        public FloatingActionItem build() {
+            return new FloatingActionItem(this);
+        }
+    }
+}
@@ -1,31 +1,43 @@
 package com.getbase.floatingactionbutton;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
-import android.os.Bundle;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.ColorRes;
 import android.support.annotation.DrawableRes;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.ContextThemeWrapper;
+import android.view.Display;
 import android.view.TouchDelegate;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.WindowManager;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.TextView;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 
 public class FloatingActionsMenu extends ViewGroup {
 
@@ -35,6 +47,13 @@ public class FloatingActionsMenu extends ViewGroup {
     public static final int LABELS_ON_LEFT_SIDE = 0;
     public static final int LABELS_ON_RIGHT_SIDE = 1;
 
+    public static final int OVERLAY_MODE_VIEW = 0;
+    public static final int OVERLAY_MODE_SCRIM = 1;
+
+    public static final int ICON_TRANSITION_NONE = 0;
+    public static final int ICON_TRANSITION_CROSSFADE = 1;
+    public static final int ICON_TRANSITION_ROTATE = 2;
+
     private static final int ANIMATION_DURATION = 300;
     private static final int OVERLAY_VIEW_ID = 927800;
 
@@ -42,19 +61,39 @@ public class FloatingActionsMenu extends ViewGroup {
     private static Interpolator sCollapseInterpolator = new DecelerateInterpolator(3f);
     private static Interpolator sAlphaExpandInterpolator = new DecelerateInterpolator();
 
-    private AnimatorSet mExpandAnimation = new AnimatorSet().setDuration(ANIMATION_DURATION);
-    private AnimatorSet mCollapseAnimation = new AnimatorSet().setDuration(ANIMATION_DURATION);
+    private MenuAnimator mMenuAnimator;
+
+    private final SparseArray<FloatingActionButton> mItemButtons = new SparseArray<>();
+    private final SparseArray<FloatingActionItem> mBoundItems = new SparseArray<>();
 
     private FloatingActionButton mMainButton;
     @Nullable
     private View mOverlayView;
 
+    private int mOverlayMode;
+    private final Paint mScrimPaint = new Paint();
+    private int mScrimColorAlpha;
+    private float mScrimFraction;
+    @Nullable
+    private ViewGroup mScrimParent;
+    private boolean mScrimParentClipChildren;
+    // catches the touches on the scrim, placed right below the menu and visible along with the scrim
+    @Nullable
+    private View mScrimTouchView;
+
     private Typeface mLabelTypeface;
+    private boolean mCustomLabelTypeface;
+    // measures the titles while the labels themselves are postponed by fab_lazyInit
+    @Nullable
+    private TextView mLabelMeasuringView;
 
     @DrawableRes
     private int mMainButtonIcon;
     @DrawableRes
     private int mExpandedMainButtonIcon;
+    private int mIconTransition;
+    @Nullable
+    private IconTransitionDrawable mIconTransitionDrawable;
     private int mMainButtonColorNormal;
     private int mMainButtonColorPressed;
     private int mMainButtonSize;
@@ -63,21 +102,88 @@ public class FloatingActionsMenu extends ViewGroup {
     private int mExpandDirection;
 
     private boolean mExpanded;
+    private boolean mLazyInit;
+    private boolean mSecondaryButtonsInitialized;
+    private boolean mExpandAnimationPending;
+    private boolean mPrewarmed;
+    private boolean mHardwareLayersEnabled;
+    private boolean mUseElevation;
     private int mButtonSpacing;
     private int mLabelsMargin;
     private int mLabelsVerticalOffset;
+    // room for the elevation shadows of the buttons, which draw outside of the button bounds
+    private int mShadowInsetHorizontal;
+    private int mShadowInsetTop;
+    private int mShadowInsetBottom;
     private int mMaxButtonWidth;
+
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    private int mCachedMeasuredWidth;
+    private int mCachedMeasuredHeight;
+    private boolean mMeasureCacheValid;
     private int mLabelsPosition;
     private int mButtonsCount;
 
-    private Rect mTouchAreaRect;
-
     private TouchDelegateGroup mTouchDelegateGroup;
 
     private OnFloatingActionsMenuUpdateListener mMenuUpdateListener;
 
     private OnActionsMenuItemClickListener mMenuClickListener;
 
+    private final AnimatorListenerAdapter mLayerTypeListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (mHardwareLayersEnabled) {
+                promoteAnimatedViewsToLayers();
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            // also called after onAnimationCancel
+            restoreAnimatedViewsLayers();
+        }
+    };
+
+    private final ValueAnimator.AnimatorUpdateListener mProgressUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            if (mScrimParent == null && mIconTransitionDrawable == null) return;
+
+            float fraction = animation.getAnimatedFraction();
+            float progress = animation == mMenuAnimator.getExpandAnimator() ? fraction : 1f - fraction;
+            if (mIconTransitionDrawable != null) {
+                mIconTransitionDrawable.setProgress(progress);
+            }
+            if (mScrimParent != null) {
+                setScrimFraction(progress);
+                // the scrim reaches past the menu's bounds, which the parent doesn't clip while
+                // the scrim is showing
+                invalidate(-getLeft(), -getTop(),
+                        mScrimParent.getWidth() - getLeft(), mScrimParent.getHeight() - getTop());
+            }
+        }
+    };
+
+    private final LabelTypefaceCache.Listener mLabelTypefaceListener = new LabelTypefaceCache.Listener() {
+        @Override
+        public void onLabelTypefaceLoaded(Typeface typeface) {
+            if (!mCustomLabelTypeface) {
+                applyLabelTypeface(typeface);
+            }
+        }
+    };
+
+    private final Runnable mAddScrimTouchView = new Runnable() {
+        @Override
+        public void run() {
+            if (mScrimParent != null && mScrimTouchView != null && mScrimTouchView.getParent() == null) {
+                mScrimParent.addView(mScrimTouchView, mScrimParent.indexOfChild(FloatingActionsMenu.this));
+            }
+        }
+    };
+
     public interface OnActionsMenuItemClickListener {
         void onMainItemClick();
 
@@ -90,6 +196,16 @@ public class FloatingActionsMenu extends ViewGroup {
         void onMenuCollapsed();
     }
 
+    /**
+     * Receives the frame timing of every expand and collapse animation once it ends. Frames are
+     * over budget when they came more than one and a half refresh intervals of the display after
+     * the previous one.
+     */
+    public interface OnMenuAnimationMetricsListener {
+        void onMenuAnimationMetrics(boolean expand, int frameCount, long maxFrameGapNanos,
+                                    int framesOverBudget, long durationNanos, boolean interrupted);
+    }
+
     public FloatingActionsMenu(Context context, AttributeSet attrs) {
         super(context, attrs);
         init(context, attrs);
@@ -107,22 +223,15 @@ public class FloatingActionsMenu extends ViewGroup {
         int childrenAmount = getChildCount();
         for (int i = 0; i < childrenAmount; i++) {
             final View child = getChildAt(i);
-            final int viewId = child.getId();
-            child.setOnClickListener(new OnClickListener() {
-                @Override
-                public void onClick(View view) {
-                    if (viewId == R.id.fab_expand_menu_button) {
-                        handleMainButtonClick();
-                    } else if (mMenuClickListener != null) {
-                        mMenuClickListener.onSecondaryItemClick(viewId);
-                    }
-                }
-            });
+            ((FloatingActionButton) child).setUseElevation(mUseElevation);
+            setButtonClickListener(child);
         }
 
         bringChildToFront(mMainButton);
         mButtonsCount = getChildCount();
-        createLabels();
+        if (!mLazyInit) {
+            initSecondaryButtons();
+        }
     }
 
     @SuppressWarnings("ResourceType")
@@ -130,37 +239,107 @@ public class FloatingActionsMenu extends ViewGroup {
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
 
+        // the display, and with it the refresh rate, is known only once attached
+        updateFrameInterval();
+
+        if (!isInEditMode()) {
+            // stays registered while attached, so setDefaultLabelTypeface() reaches this menu too
+            LabelTypefaceCache.addListener(mLabelTypefaceListener);
+            Typeface typeface = LabelTypefaceCache.requestTypeface(getContext());
+            if (typeface != null && typeface != mLabelTypeface && !mCustomLabelTypeface) {
+                applyLabelTypeface(typeface);
+            }
+        }
+
         final ViewGroup parentViewGroup = (ViewGroup) getParent();
         if (mShowOverlay && parentViewGroup != null) {
-            // Prepare an overlaying view which will be shown when the menu is expanded.
-            ViewGroup.LayoutParams lp = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
-                    ViewGroup.LayoutParams.MATCH_PARENT);
-            mOverlayView = new View(getContext());
-            mOverlayView.setId(OVERLAY_VIEW_ID);
-            mOverlayView.setLayoutParams(lp);
-            mOverlayView.setBackgroundColor(getColor(R.color.fab_overlay_color));
-            mOverlayView.setVisibility(mExpanded ? View.VISIBLE : View.INVISIBLE);
-            mOverlayView.setOnClickListener(new OuterAreaClickListener());
-            parentViewGroup.addView(mOverlayView);
-            parentViewGroup.bringChildToFront(this);
+            if (usesScrim()) {
+                attachScrim(parentViewGroup);
+            } else {
+                // Prepare an overlaying view which will be shown when the menu is expanded.
+                ViewGroup.LayoutParams lp = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT);
+                mOverlayView = new View(getContext());
+                mOverlayView.setId(OVERLAY_VIEW_ID);
+                mOverlayView.setLayoutParams(lp);
+                mOverlayView.setBackgroundColor(getColor(R.color.fab_overlay_color));
+                mOverlayView.setVisibility(mExpanded ? View.VISIBLE : View.INVISIBLE);
+                mOverlayView.setOnClickListener(new OuterAreaClickListener());
+                parentViewGroup.addView(mOverlayView);
+                parentViewGroup.bringChildToFront(this);
+            }
         }
     }
 
     @Override
     protected void onDetachedFromWindow() {
-        removeView(mOverlayView);
+        LabelTypefaceCache.removeListener(mLabelTypefaceListener);
+        if (mOverlayView != null) {
+            ViewParent overlayParent = mOverlayView.getParent();
+            if (overlayParent instanceof ViewGroup) {
+                ((ViewGroup) overlayParent).removeView(mOverlayView);
+            }
+            mOverlayView = null;
+        }
+        detachScrim();
         super.onDetachedFromWindow();
     }
 
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mScrimParent != null && mScrimFraction > 0f) {
+            // covers the whole parent, which doesn't clip its children while the scrim is showing
+            mScrimPaint.setAlpha((int) (mScrimColorAlpha * mScrimFraction));
+            canvas.drawRect(-getLeft(), -getTop(),
+                    mScrimParent.getWidth() - getLeft(), mScrimParent.getHeight() - getTop(), mScrimPaint);
+        }
+        super.dispatchDraw(canvas);
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
+        FabStats.increment(FabStats.MENU_MEASURES);
+        boolean traced = FabStats.beginSection(FabStats.SECTION_MENU_MEASURE);
+        try {
+            measureMenu(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            FabStats.endSection(traced);
+        }
+    }
+
+    private void measureMenu(int widthMeasureSpec, int heightMeasureSpec) {
+        final boolean specsChanged = !mMeasureCacheValid
+                || widthMeasureSpec != mLastWidthMeasureSpec
+                || heightMeasureSpec != mLastHeightMeasureSpec;
+
+        if (!specsChanged && !hasChildrenToMeasure()) {
+            setMeasuredDimension(mCachedMeasuredWidth, mCachedMeasuredHeight);
+            return;
+        }
+
+        // only children which changed since the last pass are measured again
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE || !(specsChanged || needsMeasure(child))) continue;
+
+            measureChild(child, widthMeasureSpec, heightMeasureSpec);
+            ViewGroup.LayoutParams params = child.getLayoutParams();
+            if (params instanceof LayoutParams) {
+                ((LayoutParams) params).mMeasureDirty = false;
+            }
+        }
 
         int width = 0;
         int height = 0;
+        int visibleButtons = 0;
 
         mMaxButtonWidth = 0;
-        int maxLabelWidth = 0;
+        // reserves the width of the labels before they're created, so the collapsed menu doesn't
+        // widen and move the main button when it's expanded for the first time
+        int maxLabelWidth = mSecondaryButtonsInitialized
+                ? 0
+                : measurePendingLabels(widthMeasureSpec, heightMeasureSpec);
 
         for (int i = 0; i < mButtonsCount; i++) {
             View child = getChildAt(i);
@@ -170,6 +349,7 @@ public class FloatingActionsMenu extends ViewGroup {
 
             mMaxButtonWidth = Math.max(mMaxButtonWidth, child.getMeasuredWidth());
             height += child.getMeasuredHeight();
+            visibleButtons++;
 
             TextView label = (TextView) child.getTag(R.id.fab_label);
             if (label != null) {
@@ -178,25 +358,92 @@ public class FloatingActionsMenu extends ViewGroup {
         }
 
         width = mMaxButtonWidth + (maxLabelWidth > 0 ? maxLabelWidth + mLabelsMargin : 0);
-        height += mButtonSpacing * (getChildCount() - 1);
-        height = adjustForOvershoot(height);
+        width += 2 * mShadowInsetHorizontal;
+        height += mButtonSpacing * Math.max(visibleButtons - 1, 0);
+        height = adjustForOvershoot(height) + mShadowInsetTop + mShadowInsetBottom;
+
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        mCachedMeasuredWidth = width;
+        mCachedMeasuredHeight = height;
+        mMeasureCacheValid = true;
 
         setMeasuredDimension(width, height);
     }
 
+    private int measurePendingLabels(int widthMeasureSpec, int heightMeasureSpec) {
+        int maxWidth = 0;
+        for (int i = 0; i < mButtonsCount; i++) {
+            FloatingActionButton button = (FloatingActionButton) getChildAt(i);
+            String title = button.getTitle();
+            if (title == null || button.getVisibility() == GONE) continue;
+
+            if (mLabelMeasuringView == null) {
+                mLabelMeasuringView = createLabel(new ContextThemeWrapper(getContext(), mLabelsStyle));
+                mLabelMeasuringView.setLayoutParams(generateDefaultLayoutParams());
+            }
+            mLabelMeasuringView.setText(title);
+            measureChild(mLabelMeasuringView, widthMeasureSpec, heightMeasureSpec);
+            maxWidth = Math.max(maxWidth, mLabelMeasuringView.getMeasuredWidth());
+        }
+        return maxWidth;
+    }
+
+    private boolean hasChildrenToMeasure() {
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && needsMeasure(child)) return true;
+        }
+        return false;
+    }
+
+    private static boolean needsMeasure(View child) {
+        ViewGroup.LayoutParams params = child.getLayoutParams();
+        return child.isLayoutRequested()
+                || (params instanceof LayoutParams && ((LayoutParams) params).mMeasureDirty);
+    }
+
+    /**
+     * Marks a button and its label to be measured again on the next pass.
+     */
+    void invalidateButtonMeasure(View button) {
+        markMeasureDirty(button);
+        View label = (View) button.getTag(R.id.fab_label);
+        if (label != null) {
+            markMeasureDirty(label);
+        }
+        requestLayout();
+    }
+
+    private static void markMeasureDirty(View child) {
+        ViewGroup.LayoutParams params = child.getLayoutParams();
+        if (params instanceof LayoutParams) {
+            ((LayoutParams) params).mMeasureDirty = true;
+        }
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        boolean expandUp = mExpandDirection == EXPAND_UP;
-
-        if (changed) {
-            mTouchDelegateGroup.clearTouchDelegates();
+        FabStats.increment(FabStats.MENU_LAYOUTS);
+        boolean traced = FabStats.beginSection(FabStats.SECTION_MENU_LAYOUT);
+        try {
+            layoutMenu(l, t, r, b);
+        } finally {
+            FabStats.endSection(traced);
         }
+    }
 
-        int mainButtonY = expandUp ? b - t - mMainButton.getMeasuredHeight() : 0;
+    private void layoutMenu(int l, int t, int r, int b) {
+        boolean expandUp = mExpandDirection == EXPAND_UP;
+
+        int mainButtonY = expandUp
+                ? b - t - mShadowInsetBottom - mMainButton.getMeasuredHeight()
+                : mShadowInsetTop;
         // Ensure mAddButton is centered on the line where the buttons should be
         int buttonsHorizontalCenter = mLabelsPosition == LABELS_ON_LEFT_SIDE
-                ? r - l - mMaxButtonWidth / 2
-                : mMaxButtonWidth / 2;
+                ? r - l - mShadowInsetHorizontal - mMaxButtonWidth / 2
+                : mShadowInsetHorizontal + mMaxButtonWidth / 2;
         int mainButtonLeft = buttonsHorizontalCenter - mMainButton.getMeasuredWidth() / 2;
         mMainButton.layout(mainButtonLeft, mainButtonY, mainButtonLeft + mMainButton.getMeasuredWidth(),
                 mainButtonY + mMainButton.getMeasuredHeight());
@@ -210,10 +457,21 @@ public class FloatingActionsMenu extends ViewGroup {
                 mainButtonY - mButtonSpacing :
                 mainButtonY + mMainButton.getMeasuredHeight() + mButtonSpacing;
 
+        mMenuAnimator.clear();
+        int animationSlot = 0;
+
         for (int i = mButtonsCount - 1; i >= 0; i--) {
             final View child = getChildAt(i);
 
-            if (child == mMainButton || child.getVisibility() == GONE) continue;
+            if (child == mMainButton) continue;
+            if (child.getVisibility() == GONE) {
+                // TouchDelegate ignores visibility, the label area would still click the button
+                TextView label = (TextView) child.getTag(R.id.fab_label);
+                if (label != null) {
+                    removeLabelTouchDelegate(label);
+                }
+                continue;
+            }
 
             int childX = buttonsHorizontalCenter - child.getMeasuredWidth() / 2;
             int childY = expandUp ? nextY - child.getMeasuredHeight() : nextY;
@@ -225,10 +483,9 @@ public class FloatingActionsMenu extends ViewGroup {
             child.setTranslationY(mExpanded ? expandedTranslation : collapsedTranslation);
             child.setAlpha(mExpanded ? 1f : 0f);
 
-            LayoutParams params = (LayoutParams) child.getLayoutParams();
-            params.mCollapseDir.setFloatValues(expandedTranslation, collapsedTranslation);
-            params.mExpandDir.setFloatValues(collapsedTranslation, expandedTranslation);
-            params.setAnimationsTarget(child);
+            if (mSecondaryButtonsInitialized) {
+                mMenuAnimator.addItem(child, animationSlot, collapsedTranslation, expandedTranslation);
+            }
 
             View label = (View) child.getTag(R.id.fab_label);
             if (label != null) {
@@ -249,22 +506,20 @@ public class FloatingActionsMenu extends ViewGroup {
 
                 label.layout(labelLeft, labelTop, labelRight, labelTop + label.getMeasuredHeight());
 
-                mTouchAreaRect = new Rect(
+                LayoutParams labelParams = (LayoutParams) label.getLayoutParams();
+                updateTouchDelegate(labelParams, child,
                         Math.min(childX, labelLeft),
                         childY - mButtonSpacing / 2,
                         Math.max(childX + child.getMeasuredWidth(), labelRight),
                         childY + child.getMeasuredHeight() + mButtonSpacing / 2);
-                mTouchDelegateGroup.addTouchDelegate(new TouchDelegate(mTouchAreaRect, child));
 
                 label.setTranslationY(mExpanded ? expandedTranslation : collapsedTranslation);
                 label.setAlpha(mExpanded ? 1f : 0f);
 
-                LayoutParams labelParams = (LayoutParams) label.getLayoutParams();
-                labelParams.mCollapseDir.setFloatValues(expandedTranslation, collapsedTranslation);
-                labelParams.mExpandDir.setFloatValues(collapsedTranslation, expandedTranslation);
-                labelParams.setAnimationsTarget(label);
+                mMenuAnimator.addItem(label, animationSlot, collapsedTranslation, expandedTranslation);
             }
 
+            animationSlot++;
             nextY = expandUp ?
                     childY - mButtonSpacing :
                     childY + child.getMeasuredHeight() + mButtonSpacing;
@@ -287,26 +542,80 @@ public class FloatingActionsMenu extends ViewGroup {
             mainBtnLabel.layout(mbLabelLeft, mbLabelTop, mbLabelRight, mbLabelTop + mainBtnLabel.getMeasuredHeight());
             mainBtnLabel.setAlpha(mExpanded ? 1f : 0f);
 
-            mTouchAreaRect = new Rect(
+            LayoutParams mainLabelParams = (LayoutParams) mainBtnLabel.getLayoutParams();
+            updateTouchDelegate(mainLabelParams, mMainButton,
                     Math.min(mainButtonLeft, mbLabelLeft),
                     mainButtonY - mButtonSpacing / 2,
                     Math.max(mainButtonLeft + mMainButton.getMeasuredWidth(), mbLabelRight),
                     mainButtonY + mMainButton.getMeasuredHeight() + mButtonSpacing / 2);
-            mTouchDelegateGroup.addTouchDelegate(new TouchDelegate(mTouchAreaRect, mMainButton));
+            mMenuAnimator.addAlphaItem(mainBtnLabel, 0);
+        }
 
-            ObjectAnimator expandAnimator = ObjectAnimator.ofFloat(mainBtnLabel, "alpha", 0f, 1f);
-            expandAnimator.setInterpolator(sAlphaExpandInterpolator);
-            ArrayList<Animator> list1 = mExpandAnimation.getChildAnimations();
-            list1.add(expandAnimator);
-            mExpandAnimation = new AnimatorSet().setDuration(ANIMATION_DURATION);
-            mExpandAnimation.playTogether(list1);
+        setScrimFraction(mExpanded ? 1f : 0f);
 
-            ObjectAnimator collapseAnimator = ObjectAnimator.ofFloat(mainBtnLabel, "alpha", 1f, 0f);
-            collapseAnimator.setInterpolator(sAlphaExpandInterpolator);
-            ArrayList<Animator> list2 = mCollapseAnimation.getChildAnimations();
-            list2.add(collapseAnimator);
-            mCollapseAnimation = new AnimatorSet().setDuration(ANIMATION_DURATION);
-            mCollapseAnimation.playTogether(list2);
+        if (mExpandAnimationPending) {
+            mExpandAnimationPending = false;
+            mMenuAnimator.startExpand();
+        }
+    }
+
+    @VisibleForTesting
+    MenuAnimator getMenuAnimator() {
+        return mMenuAnimator;
+    }
+
+    @VisibleForTesting
+    TouchDelegateGroup getTouchDelegateGroup() {
+        return mTouchDelegateGroup;
+    }
+
+    private void updateTouchDelegate(LayoutParams labelParams, View delegateView, int left, int top, int right, int bottom) {
+        Rect touchArea = labelParams.mTouchArea;
+        if (labelParams.mTouchDelegate != null
+                && touchArea.left == left && touchArea.top == top
+                && touchArea.right == right && touchArea.bottom == bottom) {
+            return;
+        }
+
+        if (labelParams.mTouchDelegate != null) {
+            mTouchDelegateGroup.removeTouchDelegate(labelParams.mTouchDelegate);
+        }
+
+        // TouchDelegate keeps the passed Rect and derives its slop bounds from it, so the Rect
+        // can't be reused; a new one is created only when the touch area actually moves.
+        touchArea = new Rect(left, top, right, bottom);
+        labelParams.mTouchArea = touchArea;
+        FabStats.increment(FabStats.TOUCH_DELEGATE_REBUILDS);
+        labelParams.mTouchDelegate = new TouchDelegate(touchArea, delegateView);
+        mTouchDelegateGroup.addTouchDelegate(touchArea, labelParams.mTouchDelegate);
+    }
+
+    private void promoteAnimatedViewsToLayers() {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            ViewGroup.LayoutParams params = child.getLayoutParams();
+            if (child == mMainButton || child.getVisibility() == GONE || !(params instanceof LayoutParams)) continue;
+
+            LayoutParams animatedParams = (LayoutParams) params;
+            if (!animatedParams.mLayerTypePromoted) {
+                animatedParams.mSavedLayerType = child.getLayerType();
+                animatedParams.mLayerTypePromoted = true;
+                child.setLayerType(LAYER_TYPE_HARDWARE, null);
+            }
+        }
+    }
+
+    private void restoreAnimatedViewsLayers() {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            ViewGroup.LayoutParams params = child.getLayoutParams();
+            if (!(params instanceof LayoutParams)) continue;
+
+            LayoutParams animatedParams = (LayoutParams) params;
+            if (animatedParams.mLayerTypePromoted) {
+                animatedParams.mLayerTypePromoted = false;
+                child.setLayerType(animatedParams.mSavedLayerType, null);
+            }
         }
     }
 
@@ -341,18 +650,16 @@ public class FloatingActionsMenu extends ViewGroup {
         SavedState savedState = new SavedState(superState);
         savedState.mExpanded = mExpanded;
 
-        HashMap<Integer, String> labelTitlesMap = new HashMap<>(mButtonsCount);
+        SparseArray<String> labelTitles = new SparseArray<>(mButtonsCount);
         int childrenAmount = getChildCount();
         for (int i = 0; i < childrenAmount; i++) {
             View v = getChildAt(i);
             if (v instanceof FloatingActionButton) {
                 FloatingActionButton fab = (FloatingActionButton) v;
-                int id = fab.getId();
-                String title = fab.getTitle();
-                labelTitlesMap.put(id, title);
+                labelTitles.put(fab.getId(), fab.getTitle());
             }
         }
-        savedState.mLabelTitlesMap = labelTitlesMap;
+        savedState.mLabelTitles = labelTitles;
 
         return savedState;
     }
@@ -362,23 +669,26 @@ public class FloatingActionsMenu extends ViewGroup {
         if (state instanceof SavedState) {
             SavedState savedState = (SavedState) state;
             mExpanded = savedState.mExpanded;
+            if (mExpanded && !mSecondaryButtonsInitialized) {
+                initSecondaryButtons();
+            }
 
-            int iconId = mExpanded ? mExpandedMainButtonIcon : mMainButtonIcon;
-            mMainButton.setIcon(iconId);
+            updateMainButtonIcon();
 
-            HashMap<Integer, String> labelTitlesMap = savedState.mLabelTitlesMap;
+            SparseArray<String> labelTitles = savedState.mLabelTitles;
             int childrenAmount = getChildCount();
             for (int i = 0; i < childrenAmount; i++) {
                 View v = getChildAt(i);
                 if (v instanceof FloatingActionButton) {
                     FloatingActionButton fab = (FloatingActionButton) v;
                     int id = fab.getId();
-                    String text = labelTitlesMap.get(id);
+                    String text = labelTitles.get(id);
                     fab.setTitle(text);
                 }
             }
 
             mTouchDelegateGroup.setEnabled(mExpanded);
+            setScrimFraction(mExpanded ? 1f : 0f);
             super.onRestoreInstanceState(savedState.getSuperState());
         } else {
             super.onRestoreInstanceState(state);
@@ -399,16 +709,262 @@ public class FloatingActionsMenu extends ViewGroup {
         mMenuUpdateListener = listener;
     }
 
+    /**
+     * Starts measuring the frame timing of the menu animations. Pass null to stop, the animations
+     * don't track anything without a listener.
+     */
+    public void setOnMenuAnimationMetricsListener(@Nullable OnMenuAnimationMetricsListener listener) {
+        if (listener != null) {
+            updateFrameInterval();
+        }
+        mMenuAnimator.setMetricsListener(listener);
+    }
+
+    @SuppressLint("NewApi")
+    private void updateFrameInterval() {
+        Display display = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+                ? getDisplay()
+                : null;
+        if (display == null) {
+            WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+            display = windowManager != null ? windowManager.getDefaultDisplay() : null;
+        }
+
+        float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        mMenuAnimator.setFrameInterval(refreshRate > 0f ? (long) (1000000000L / refreshRate) : 0);
+    }
+
     public void addButton(FloatingActionButton button) {
+        button.setUseElevation(mUseElevation);
         addView(button, mButtonsCount - 1);
         mButtonsCount++;
-        createLabels();
+        mMeasureCacheValid = false;
+        if (mSecondaryButtonsInitialized) {
+            createLabels();
+        }
+        mPrewarmed = false;
+    }
+
+    /**
+     * Adds all buttons above the existing ones with a single label pass and layout request.
+     */
+    public void addButtons(@NonNull List<FloatingActionButton> buttons) {
+        if (buttons.isEmpty()) return;
+
+        for (int i = 0; i < buttons.size(); i++) {
+            FloatingActionButton button = buttons.get(i);
+            button.setUseElevation(mUseElevation);
+
+            ViewGroup.LayoutParams params = button.getLayoutParams();
+            params = params == null ? generateDefaultLayoutParams() : generateLayoutParams(params);
+            addViewInLayout(button, mButtonsCount - 1, params, true);
+            mButtonsCount++;
+        }
+
+        mMeasureCacheValid = false;
+        if (mSecondaryButtonsInitialized) {
+            createLabels();
+        }
+        mPrewarmed = false;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Replaces all buttons except the main one with the given buttons.
+     */
+    public void setButtons(@NonNull List<FloatingActionButton> buttons) {
+        for (int i = mButtonsCount - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (child != mMainButton) {
+                detachButton((FloatingActionButton) child);
+            }
+        }
+        mMenuAnimator.clear();
+
+        if (buttons.isEmpty()) {
+            mMeasureCacheValid = false;
+            mPrewarmed = false;
+            requestLayout();
+            invalidate();
+        } else {
+            addButtons(buttons);
+        }
+    }
+
+    /**
+     * Binds the secondary buttons to the given items, ordered from the main button outwards.
+     * Buttons of items with an id that was bound before are reused, moved and updated only where
+     * the item changed; buttons of other ids are removed. Clicks are reported to
+     * {@link OnActionsMenuItemClickListener#onSecondaryItemClick(int)} with the item id.
+     * Secondary buttons added in any other way are removed on the first call.
+     */
+    public void setItems(@NonNull List<FloatingActionItem> items) {
+        final int count = items.size();
+        SparseArray<FloatingActionItem> newItems = new SparseArray<>(count);
+        for (int i = 0; i < count; i++) {
+            FloatingActionItem item = items.get(i);
+            if (newItems.get(item.getId()) != null) {
+                throw new IllegalArgumentException("Duplicate item id " + item.getId());
+            }
+            newItems.put(item.getId(), item);
+        }
+
+        boolean changed = false;
+
+        for (int i = mButtonsCount - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (child == mMainButton) continue;
+
+            int id = child.getId();
+            if (newItems.get(id) == null || mItemButtons.get(id) != child) {
+                detachButton((FloatingActionButton) child);
+                changed = true;
+            }
+        }
+
+        // children are placed from the farthest button towards the main button, so every
+        // position before the current one already holds its final button
+        for (int index = 0; index < count; index++) {
+            FloatingActionItem item = items.get(count - 1 - index);
+            FloatingActionButton button = mItemButtons.get(item.getId());
+
+            if (button == null) {
+                button = new FloatingActionButton(getContext());
+                button.setId(item.getId());
+                button.setUseElevation(mUseElevation);
+                setButtonClickListener(button);
+                bindItem(button, null, item);
+
+                addViewInLayout(button, index, generateDefaultLayoutParams(), true);
+                mButtonsCount++;
+                mItemButtons.put(item.getId(), button);
+                changed = true;
+            } else {
+                if (bindItem(button, mBoundItems.get(item.getId()), item)) {
+                    changed = true;
+                }
+
+                if (indexOfChild(button) != index) {
+                    detachViewFromParent(button);
+                    attachViewToParent(button, index, button.getLayoutParams());
+                    changed = true;
+                }
+            }
+            mBoundItems.put(item.getId(), item);
+        }
+
+        if (!changed) return;
+
+        mMenuAnimator.clear();
+        mMeasureCacheValid = false;
+        mPrewarmed = false;
+        if (mSecondaryButtonsInitialized) {
+            createLabels();
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @return whether a label has to be created or was removed, which setItems() has to lay out.
+     */
+    private boolean bindItem(FloatingActionButton button, @Nullable FloatingActionItem oldItem,
+                             FloatingActionItem item) {
+        boolean labelsChanged = false;
+        if (oldItem == null || !TextUtils.equals(oldItem.getTitle(), item.getTitle())) {
+            button.setTitle(item.getTitle());
+
+            TextView label = button.getLabelView();
+            if (item.getTitle() == null && label != null) {
+                removeLabelTouchDelegate(label);
+                removeViewInLayout(label);
+                button.setTag(R.id.fab_label, null);
+                labelsChanged = true;
+            } else if (item.getTitle() != null && label == null) {
+                labelsChanged = true;
+            }
+        }
+
+        // the Editor rebuilds the background only if any of these actually changed
+        int colorNormal = item.hasColorNormal() ? item.getColorNormal() : getColor(android.R.color.holo_blue_dark);
+        button.edit()
+                .icon(item.getIcon())
+                .colorNormal(colorNormal)
+                .colorPressed(item.hasColorPressed()
+                        ? item.getColorPressed()
+                        : ColorUtils.getPalette(colorNormal)[ColorUtils.PALETTE_PRESSED])
+                .colorDisabled(item.hasColorDisabled() ? item.getColorDisabled() : getColor(android.R.color.darker_gray))
+                .apply();
+        return labelsChanged;
     }
 
     public void removeButton(FloatingActionButton button) {
-        removeView(button.getLabelView());
+        TextView label = button.getLabelView();
+        if (label != null) {
+            removeLabelTouchDelegate(label);
+            removeView(label);
+            button.setTag(R.id.fab_label, null);
+        }
         removeView(button);
+        forgetItemButton(button);
         mButtonsCount--;
+        mMeasureCacheValid = false;
+        mPrewarmed = false;
+
+        // the next layout pass registers the remaining items again
+        mMenuAnimator.clear();
+    }
+
+    /**
+     * Removes the buttons and their labels with a single layout request.
+     */
+    public void removeButtons(@NonNull List<FloatingActionButton> buttons) {
+        boolean removed = false;
+        for (int i = 0; i < buttons.size(); i++) {
+            FloatingActionButton button = buttons.get(i);
+            if (button != mMainButton && button.getParent() == this) {
+                detachButton(button);
+                removed = true;
+            }
+        }
+        if (!removed) return;
+
+        mMenuAnimator.clear();
+        mMeasureCacheValid = false;
+        mPrewarmed = false;
+        requestLayout();
+        invalidate();
+    }
+
+    private void detachButton(FloatingActionButton button) {
+        TextView label = button.getLabelView();
+        if (label != null) {
+            removeLabelTouchDelegate(label);
+            removeViewInLayout(label);
+            // a button added again gets a new label
+            button.setTag(R.id.fab_label, null);
+        }
+        removeViewInLayout(button);
+        forgetItemButton(button);
+        mButtonsCount--;
+    }
+
+    private void forgetItemButton(FloatingActionButton button) {
+        int id = button.getId();
+        if (mItemButtons.get(id) == button) {
+            mItemButtons.remove(id);
+            mBoundItems.remove(id);
+        }
+    }
+
+    private void removeLabelTouchDelegate(TextView label) {
+        LayoutParams labelParams = (LayoutParams) label.getLayoutParams();
+        if (labelParams.mTouchDelegate != null) {
+            mTouchDelegateGroup.removeTouchDelegate(labelParams.mTouchDelegate);
+            labelParams.mTouchDelegate = null;
+            labelParams.mTouchArea = null;
+        }
     }
 
     public void setOverlayEnabled(boolean isEnabled) {
@@ -419,21 +975,137 @@ public class FloatingActionsMenu extends ViewGroup {
         return mShowOverlay;
     }
 
+    /**
+     * Chooses how the overlay is shown. {@link #OVERLAY_MODE_VIEW} adds a full-screen View to the
+     * parent. {@link #OVERLAY_MODE_SCRIM} draws the overlay from the menu itself, fading with the
+     * menu animation: nothing is drawn while collapsed, the parent only gets a transparent View
+     * below the menu to catch the taps on the scrim, which collapse the menu. While the scrim is
+     * showing the parent stops clipping its children, and only the views drawn before the menu
+     * are dimmed and stop receiving touches, views drawn after the menu stay above the scrim.
+     * Requires API 18, older platforms fall back to {@link #OVERLAY_MODE_VIEW}.
+     * Takes effect the next time the menu is attached to a window.
+     */
+    public void setOverlayMode(int overlayMode) {
+        if (overlayMode != OVERLAY_MODE_VIEW && overlayMode != OVERLAY_MODE_SCRIM) {
+            throw new IllegalArgumentException("Use OVERLAY_MODE_* constants only!");
+        }
+        mOverlayMode = overlayMode;
+    }
+
+    public int getOverlayMode() {
+        return mOverlayMode;
+    }
+
+    /**
+     * Sets how the main button changes between the collapsed and expanded icon. With
+     * {@link #ICON_TRANSITION_NONE} the icon is swapped when the menu starts to expand or collapse,
+     * the other transitions cross-fade or rotate the icons along with the menu animation.
+     */
+    public void setIconTransition(int iconTransition) {
+        if (iconTransition != ICON_TRANSITION_NONE && iconTransition != ICON_TRANSITION_CROSSFADE
+                && iconTransition != ICON_TRANSITION_ROTATE) {
+            throw new IllegalArgumentException("Use ICON_TRANSITION_* constants only!");
+        }
+        if (mIconTransition == iconTransition) return;
+
+        mIconTransition = iconTransition;
+        mIconTransitionDrawable = null;
+        updateMainButtonIcon();
+    }
+
+    public int getIconTransition() {
+        return mIconTransition;
+    }
+
+    /**
+     * When enabled, the buttons and labels are rendered into hardware layers for the duration of
+     * the expand and collapse animations, so each frame only composites the cached textures.
+     */
+    public void setHardwareLayersEnabled(boolean enabled) {
+        mHardwareLayersEnabled = enabled;
+    }
+
+    public boolean isHardwareLayersEnabled() {
+        return mHardwareLayersEnabled;
+    }
+
+    /**
+     * Applies {@link FloatingActionButton#setUseElevation(boolean)} to all buttons of the menu and
+     * adjusts the spacing between them, which no longer has to account for the bitmap shadows.
+     * The menu reserves room for the elevation shadows within its own bounds instead, so they
+     * aren't clipped by the menu or by a parent which clips its children.
+     */
+    public void setUseElevation(boolean useElevation) {
+        if (mUseElevation == useElevation) return;
+
+        mUseElevation = useElevation;
+        updateSpacing();
+        mMeasureCacheValid = false;
+        for (int i = 0; i < mButtonsCount; i++) {
+            ((FloatingActionButton) getChildAt(i)).setUseElevation(useElevation);
+        }
+        requestLayout();
+    }
+
+    public boolean getUseElevation() {
+        return mUseElevation;
+    }
+
+    /**
+     * Delays the animation of each button and its label by the given time relative to the
+     * previous button. Expanding starts with the button closest to the main button, collapsing
+     * with the farthest one.
+     */
+    public void setAnimationStagger(long staggerMillis) {
+        mMenuAnimator.setStagger(staggerMillis);
+    }
+
+    public long getAnimationStagger() {
+        return mMenuAnimator.getStagger();
+    }
+
+    public void setExpandInterpolator(@NonNull Interpolator interpolator) {
+        mMenuAnimator.setExpandInterpolator(interpolator);
+    }
+
+    public void setCollapseInterpolator(@NonNull Interpolator interpolator) {
+        mMenuAnimator.setCollapseInterpolator(interpolator);
+    }
+
+    /**
+     * Sets the Typeface used by the labels of this menu instead of the bundled Roboto Medium.
+     */
+    public void setLabelTypeface(@NonNull Typeface typeface) {
+        mCustomLabelTypeface = true;
+        applyLabelTypeface(typeface);
+    }
+
+    /**
+     * Replaces the bundled Roboto Medium with the given Typeface for all menus which don't have
+     * their own labels Typeface, including the ones already showing the bundled font. Detached
+     * menus pick it up when they're attached. Must be called on the main thread.
+     */
+    public static void setDefaultLabelTypeface(@NonNull Typeface typeface) {
+        LabelTypefaceCache.setTypeface(typeface);
+    }
+
     public void setMainButtonTitle(String title) {
         mMainButton.setTitle(title);
     }
 
     public void collapse() {
         if (mExpanded) {
-            mMainButton.setIcon(mMainButtonIcon);
+            if (mIconTransitionDrawable == null) {
+                mMainButton.setIcon(mMainButtonIcon);
+            }
             post(new Runnable() {
                 @Override
                 public void run() {
                     mExpanded = false;
                     if (mShowOverlay && mOverlayView != null) mOverlayView.setVisibility(View.INVISIBLE);
                     mTouchDelegateGroup.setEnabled(false);
-                    mCollapseAnimation.start();
-                    mExpandAnimation.cancel();
+                    mExpandAnimationPending = false;
+                    mMenuAnimator.startCollapse();
 
                     if (mMenuUpdateListener != null) {
                         mMenuUpdateListener.onMenuCollapsed();
@@ -445,15 +1117,26 @@ public class FloatingActionsMenu extends ViewGroup {
 
     public void expand() {
         if (!mExpanded) {
-            mMainButton.setIcon(mExpandedMainButtonIcon);
+            if (!mSecondaryButtonsInitialized) {
+                initSecondaryButtons();
+                requestLayout();
+            }
+            if (mIconTransitionDrawable == null) {
+                mMainButton.setIcon(mExpandedMainButtonIcon);
+            }
             post(new Runnable() {
                 @Override
                 public void run() {
                     mExpanded = true;
                     if (mShowOverlay && mOverlayView != null) mOverlayView.setVisibility(View.VISIBLE);
                     mTouchDelegateGroup.setEnabled(true);
-                    mCollapseAnimation.cancel();
-                    mExpandAnimation.start();
+                    if (isLayoutRequested()) {
+                        // Wait for the labels and animation items set up by the pending layout pass
+                        mMenuAnimator.cancel();
+                        mExpandAnimationPending = true;
+                    } else {
+                        mMenuAnimator.startExpand();
+                    }
 
                     if (mMenuUpdateListener != null) {
                         mMenuUpdateListener.onMenuExpanded();
@@ -467,12 +1150,75 @@ public class FloatingActionsMenu extends ViewGroup {
         return mExpanded;
     }
 
+    /**
+     * Does the work which would otherwise happen on the first expand: creates the labels, loads
+     * the labels Typeface, measures the labels and runs the animators once. The labels are laid
+     * out by the regular layout pass this requests. Meant to be called while the main thread is
+     * idle, e.g. from a MessageQueue.IdleHandler.
+     */
+    @MainThread
+    public void prewarm() {
+        if (mPrewarmed) return;
+
+        if (!mSecondaryButtonsInitialized) {
+            initSecondaryButtons();
+        }
+
+        if (mLabelTypeface == null && !isInEditMode()) {
+            applyLabelTypeface(LabelTypefaceCache.loadTypeface(getContext()));
+        }
+
+        // Only the labels are measured, the menu's own size and the measure cache are left alone
+        // and the layout pass requested below puts everything in place.
+        prewarmLabels();
+        requestLayout();
+
+        // Running the collapse animation on a collapsed menu doesn't change anything on screen,
+        // but initializes the animators, so the first expand doesn't have to. The listeners aren't
+        // notified, so no metrics are reported and no hardware layers are built.
+        if (!mExpanded) {
+            mMenuAnimator.prewarm();
+        }
+
+        mPrewarmed = true;
+    }
+
+    private void prewarmLabels() {
+        int widthMeasureSpec;
+        int heightMeasureSpec;
+        if (mMeasureCacheValid) {
+            widthMeasureSpec = mLastWidthMeasureSpec;
+            heightMeasureSpec = mLastHeightMeasureSpec;
+        } else {
+            widthMeasureSpec = prewarmMeasureSpec(getWidth());
+            heightMeasureSpec = prewarmMeasureSpec(getHeight());
+        }
+
+        for (int i = 0; i < mButtonsCount; i++) {
+            View label = (View) getChildAt(i).getTag(R.id.fab_label);
+            if (label != null && label.getVisibility() != GONE) {
+                measureChild(label, widthMeasureSpec, heightMeasureSpec);
+            }
+        }
+    }
+
+    private static int prewarmMeasureSpec(int size) {
+        return size > 0
+                ? MeasureSpec.makeMeasureSpec(size, MeasureSpec.AT_MOST)
+                : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+    }
+
+    public boolean isPrewarmed() {
+        return mPrewarmed;
+    }
+
     private void init(Context context, AttributeSet attributeSet) {
-        mButtonSpacing = (int) (getResources().getDimension(R.dimen.fab_actions_spacing)
-                - getResources().getDimension(R.dimen.fab_shadow_radius)
-                - getResources().getDimension(R.dimen.fab_shadow_offset));
-        mLabelsMargin = getResources().getDimensionPixelSize(R.dimen.fab_labels_margin);
-        mLabelsVerticalOffset = getResources().getDimensionPixelSize(R.dimen.fab_shadow_offset);
+        mLabelsMargin = FabMetrics.get(getResources()).mLabelsMarginPixelSize;
+
+        mMenuAnimator = new MenuAnimator(ANIMATION_DURATION,
+                sExpandInterpolator, sCollapseInterpolator, sAlphaExpandInterpolator, sCollapseInterpolator);
+        mMenuAnimator.addListener(mLayerTypeListener);
+        mMenuAnimator.addUpdateListener(mProgressUpdateListener);
 
         mTouchDelegateGroup = new TouchDelegateGroup(this);
         setTouchDelegate(mTouchDelegateGroup);
@@ -481,18 +1227,45 @@ public class FloatingActionsMenu extends ViewGroup {
         mMainButtonIcon = attr.getResourceId(R.styleable.FloatingActionsMenu_fab_mainButtonIcon, 0);
         mExpandedMainButtonIcon = attr.getResourceId(R.styleable.FloatingActionsMenu_fab_expandedMainButtonIcon, mMainButtonIcon);
         mMainButtonColorNormal = attr.getColor(R.styleable.FloatingActionsMenu_fab_mainButtonColorNormal, getColor(android.R.color.holo_blue_dark));
-        mMainButtonColorPressed = attr.getColor(R.styleable.FloatingActionsMenu_fab_mainButtonColorPressed, ColorUtils.darkenColor(mMainButtonColorNormal));
+        mMainButtonColorPressed = attr.getColor(R.styleable.FloatingActionsMenu_fab_mainButtonColorPressed, ColorUtils.getPalette(mMainButtonColorNormal)[ColorUtils.PALETTE_PRESSED]);
         mMainButtonSize = attr.getInt(R.styleable.FloatingActionsMenu_fab_mainButtonSize, FloatingActionButton.SIZE_NORMAL);
         mShowOverlay = attr.getBoolean(R.styleable.FloatingActionsMenu_fab_showOverlay, true);
+        mOverlayMode = attr.getInt(R.styleable.FloatingActionsMenu_fab_overlayMode, OVERLAY_MODE_VIEW);
+        mIconTransition = attr.getInt(R.styleable.FloatingActionsMenu_fab_iconTransition, ICON_TRANSITION_NONE);
         mExpandDirection = attr.getInt(R.styleable.FloatingActionsMenu_fab_expandDirection, EXPAND_UP);
         mLabelsStyle = attr.getResourceId(R.styleable.FloatingActionsMenu_fab_labelStyle, R.style.default_labels_style);
         mLabelsPosition = attr.getInt(R.styleable.FloatingActionsMenu_fab_labelsPosition, LABELS_ON_LEFT_SIDE);
+        mLazyInit = attr.getBoolean(R.styleable.FloatingActionsMenu_fab_lazyInit, false);
+        mHardwareLayersEnabled = attr.getBoolean(R.styleable.FloatingActionsMenu_fab_hardwareLayers, false);
+        mUseElevation = attr.getBoolean(R.styleable.FloatingActionsMenu_fab_useElevation, true);
         String mainButtonTitle = attr.getString(R.styleable.FloatingActionsMenu_fab_mainButtonTitle);
         attr.recycle();
 
+        updateSpacing();
+
         if (!isInEditMode())
-            mLabelTypeface = Typeface.createFromAsset(getContext().getAssets(), "fonts/roboto_medium.ttf");
+            mLabelTypeface = LabelTypefaceCache.requestTypeface(context);
         createMainButtonButton(context, mainButtonTitle);
+        // inflated menus count their buttons again in onFinishInflate(), which isn't called for
+        // menus built with addButton()
+        mButtonsCount = 1;
+        setButtonClickListener(mMainButton);
+        // labels of added buttons are then created right away, like the ones of inflated buttons
+        mSecondaryButtonsInitialized = !mLazyInit;
+    }
+
+    private void setButtonClickListener(View button) {
+        final int viewId = button.getId();
+        button.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                if (viewId == R.id.fab_expand_menu_button) {
+                    handleMainButtonClick();
+                } else if (mMenuClickListener != null) {
+                    mMenuClickListener.onSecondaryItemClick(viewId);
+                }
+            }
+        });
     }
 
     private void handleMainButtonClick() {
@@ -505,11 +1278,131 @@ public class FloatingActionsMenu extends ViewGroup {
         mMainButton = new FloatingActionButton(context);
         mMainButton.setId(R.id.fab_expand_menu_button);
         mMainButton.setTitle(title);
-        mMainButton.setIcon(mMainButtonIcon);
-        mMainButton.setSize(mMainButtonSize);
-        mMainButton.setColorNormal(mMainButtonColorNormal);
-        mMainButton.setColorPressed(mMainButtonColorPressed);
-        addView(mMainButton, super.generateDefaultLayoutParams());
+        mMainButton.setUseElevation(mUseElevation);
+        mMainButton.edit()
+                .size(mMainButtonSize)
+                .colorNormal(mMainButtonColorNormal)
+                .colorPressed(mMainButtonColorPressed)
+                .apply();
+        updateMainButtonIcon();
+        addView(mMainButton, generateDefaultLayoutParams());
+    }
+
+    /**
+     * Shows the main button icon matching the current state. With an icon transition the main
+     * button keeps a single drawable which blends both icons as the menu animates.
+     */
+    private void updateMainButtonIcon() {
+        if (mIconTransition == ICON_TRANSITION_NONE) {
+            mIconTransitionDrawable = null;
+            mMainButton.setIcon(mExpanded ? mExpandedMainButtonIcon : mMainButtonIcon);
+            return;
+        }
+
+        if (mIconTransitionDrawable == null) {
+            Drawable collapsedIcon = loadMainButtonIcon(mMainButtonIcon);
+            Drawable expandedIcon = mExpandedMainButtonIcon == mMainButtonIcon
+                    ? collapsedIcon
+                    : loadMainButtonIcon(mExpandedMainButtonIcon);
+            mIconTransitionDrawable = new IconTransitionDrawable(collapsedIcon, expandedIcon,
+                    mIconTransition == ICON_TRANSITION_ROTATE
+                            ? IconTransitionDrawable.MODE_ROTATE
+                            : IconTransitionDrawable.MODE_CROSSFADE);
+            mMainButton.setIconDrawable(mIconTransitionDrawable);
+        }
+        mIconTransitionDrawable.setProgress(mExpanded ? 1f : 0f);
+    }
+
+    private Drawable loadMainButtonIcon(@DrawableRes int icon) {
+        return icon != 0 ? IconCache.getDrawable(getResources(), icon) : new ColorDrawable(Color.TRANSPARENT);
+    }
+
+    private boolean usesScrim() {
+        return mOverlayMode == OVERLAY_MODE_SCRIM && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    private void attachScrim(ViewGroup parent) {
+        int color = getColor(R.color.fab_overlay_color);
+        mScrimPaint.setColor(color);
+        mScrimColorAlpha = Color.alpha(color);
+
+        // transparent, the menu draws the scrim itself
+        mScrimTouchView = new View(getContext());
+        mScrimTouchView.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+        mScrimTouchView.setVisibility(View.INVISIBLE);
+        mScrimTouchView.setOnClickListener(new OuterAreaClickListener());
+        // inserting a child below the menu while the parent dispatches the attach to its children
+        // would shift the menu and attach it twice
+        post(mAddScrimTouchView);
+
+        mScrimParent = parent;
+        mScrimFraction = 0f;
+        setScrimFraction(mExpanded ? 1f : 0f);
+    }
+
+    private void detachScrim() {
+        if (mScrimParent == null) return;
+
+        setScrimFraction(0f);
+        removeCallbacks(mAddScrimTouchView);
+        if (mScrimTouchView != null && mScrimTouchView.getParent() == mScrimParent) {
+            final ViewGroup parent = mScrimParent;
+            final View touchView = mScrimTouchView;
+            // the parent may be dispatching the detach to its children, which removing one shifts
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    parent.removeView(touchView);
+                }
+            });
+        }
+        mScrimTouchView = null;
+        mScrimParent = null;
+    }
+
+    /**
+     * The parent only stops clipping its children, and the scrim only catches touches, while the
+     * scrim is showing.
+     */
+    @SuppressLint("NewApi")
+    private void setScrimFraction(float fraction) {
+        boolean wasShowing = mScrimFraction > 0f;
+        mScrimFraction = fraction;
+        boolean showing = fraction > 0f;
+        if (mScrimParent == null || showing == wasShowing) return;
+
+        if (showing) {
+            mScrimParentClipChildren = mScrimParent.getClipChildren();
+            mScrimParent.setClipChildren(false);
+        } else {
+            mScrimParent.setClipChildren(mScrimParentClipChildren);
+        }
+        if (mScrimTouchView != null) {
+            // INVISIBLE rather than GONE, the parent doesn't have to be laid out again
+            mScrimTouchView.setVisibility(showing ? View.VISIBLE : View.INVISIBLE);
+        }
+    }
+
+    private void updateSpacing() {
+        FabMetrics metrics = FabMetrics.get(getResources());
+        if (mUseElevation && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // the buttons are only as large as their circles
+            mButtonSpacing = metrics.mActionsSpacingPixelSize;
+            mLabelsVerticalOffset = 0;
+            // the ambient shadow spreads about the elevation around the circle, the key light
+            // shadow is cast further downwards
+            mShadowInsetHorizontal = (int) Math.ceil(metrics.mElevation);
+            mShadowInsetTop = mShadowInsetHorizontal;
+            mShadowInsetBottom = (int) Math.ceil(metrics.mElevation * 1.5f);
+        } else {
+            mButtonSpacing = (int) (metrics.mActionsSpacing - metrics.mShadowRadius - metrics.mShadowOffset);
+            mLabelsVerticalOffset = metrics.mShadowOffsetPixelSize;
+            // the bitmap shadows are part of the button drawables
+            mShadowInsetHorizontal = 0;
+            mShadowInsetTop = 0;
+            mShadowInsetBottom = 0;
+        }
     }
 
     private int getColor(@ColorRes int id) {
@@ -520,7 +1413,28 @@ public class FloatingActionsMenu extends ViewGroup {
         return dimension * 12 / 10;
     }
 
+    /**
+     * Creates the labels, and lets the next layout pass set up the touch delegates and animators.
+     * With fab_lazyInit this is postponed until the menu is expanded for the first time, until then
+     * the width of the labels is reserved by measuring the titles with a single detached label.
+     */
+    private void initSecondaryButtons() {
+        mSecondaryButtonsInitialized = true;
+        mLabelMeasuringView = null;
+        createLabels();
+    }
+
     private void createLabels() {
+        boolean traced = FabStats.beginSection(FabStats.SECTION_CREATE_LABELS);
+        try {
+            createMissingLabels();
+        } finally {
+            FabStats.endSection(traced);
+        }
+    }
+
+    private void createMissingLabels() {
+        boolean created = false;
         Context context = new ContextThemeWrapper(getContext(), mLabelsStyle);
         for (int i = 0; i < mButtonsCount; i++) {
             FloatingActionButton button = (FloatingActionButton) getChildAt(i);
@@ -528,14 +1442,44 @@ public class FloatingActionsMenu extends ViewGroup {
 
             if (title == null || button.getTag(R.id.fab_label) != null) continue;
 
-            TextView label = new TextView(context);
-            label.setTextAppearance(getContext(), mLabelsStyle);
+            TextView label = createLabel(context);
+            FabStats.increment(FabStats.LABEL_CREATIONS);
             label.setText(title);
-            label.setTypeface(mLabelTypeface);
-            addView(label);
+            addViewInLayout(label, -1, generateDefaultLayoutParams(), true);
+            created = true;
 
             button.setTag(R.id.fab_label, label);
         }
+
+        // one layout request for all labels instead of one per addView()
+        if (created) {
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    private TextView createLabel(Context themedContext) {
+        TextView label = new TextView(themedContext);
+        label.setTextAppearance(getContext(), mLabelsStyle);
+        label.setTypeface(mLabelTypeface);
+        return label;
+    }
+
+    private void applyLabelTypeface(Typeface typeface) {
+        mLabelTypeface = typeface;
+        for (int i = 0; i < mButtonsCount; i++) {
+            TextView label = (TextView) getChildAt(i).getTag(R.id.fab_label);
+            if (label != null) {
+                label.setTypeface(typeface);
+            }
+        }
+
+        if (mLabelMeasuringView != null) {
+            // isn't attached, so the reserved width has to be measured again explicitly
+            mLabelMeasuringView.setTypeface(typeface);
+            mMeasureCacheValid = false;
+            requestLayout();
+        }
     }
 
     private final class OuterAreaClickListener implements OnClickListener {
@@ -548,9 +1492,8 @@ public class FloatingActionsMenu extends ViewGroup {
 
     private static class SavedState extends BaseSavedState {
 
-        private static final String MAP_BUNDLE_KEY = "HashMap";
         public boolean mExpanded;
-        public HashMap<Integer, String> mLabelTitlesMap;
+        public SparseArray<String> mLabelTitles;
 
         public SavedState(Parcelable parcel) {
             super(parcel);
@@ -559,16 +1502,27 @@ public class FloatingActionsMenu extends ViewGroup {
         private SavedState(Parcel in) {
             super(in);
             mExpanded = in.readInt() == 1;
-            mLabelTitlesMap = (HashMap<Integer, String>) in.readBundle().getSerializable(MAP_BUNDLE_KEY);
+
+            // count, followed by the id and title of each button
+            int count = in.readInt();
+            mLabelTitles = new SparseArray<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                mLabelTitles.put(id, in.readString());
+            }
         }
 
         @Override
         public void writeToParcel(@NonNull Parcel out, int flags) {
             super.writeToParcel(out, flags);
-            Bundle b = new Bundle(1);
-            b.putSerializable(MAP_BUNDLE_KEY, mLabelTitlesMap);
             out.writeInt(mExpanded ? 1 : 0);
-            out.writeBundle(b);
+
+            int count = mLabelTitles.size();
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeInt(mLabelTitles.keyAt(i));
+                out.writeString(mLabelTitles.valueAt(i));
+            }
         }
 
         public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
@@ -587,44 +1541,16 @@ public class FloatingActionsMenu extends ViewGroup {
 
     private class LayoutParams extends ViewGroup.LayoutParams {
 
-        private ObjectAnimator mExpandDir = new ObjectAnimator();
-        private ObjectAnimator mExpandAlpha = new ObjectAnimator();
-        private ObjectAnimator mCollapseDir = new ObjectAnimator();
-        private ObjectAnimator mCollapseAlpha = new ObjectAnimator();
-        private boolean animationsSetToPlay;
+        private Rect mTouchArea;
+        private TouchDelegate mTouchDelegate;
 
-        public LayoutParams(ViewGroup.LayoutParams source) {
-            super(source);
-
-            mExpandDir.setInterpolator(sExpandInterpolator);
-            mExpandAlpha.setInterpolator(sAlphaExpandInterpolator);
-            mCollapseDir.setInterpolator(sCollapseInterpolator);
-            mCollapseAlpha.setInterpolator(sCollapseInterpolator);
-
-            mCollapseAlpha.setProperty(View.ALPHA);
-            mCollapseAlpha.setFloatValues(1f, 0f);
+        private boolean mMeasureDirty = true;
 
-            mExpandAlpha.setProperty(View.ALPHA);
-            mExpandAlpha.setFloatValues(0f, 1f);
-
-            mCollapseDir.setProperty(View.TRANSLATION_Y);
-            mExpandDir.setProperty(View.TRANSLATION_Y);
-        }
+        private int mSavedLayerType;
+        private boolean mLayerTypePromoted;
 
-        public void setAnimationsTarget(View view) {
-            mCollapseAlpha.setTarget(view);
-            mCollapseDir.setTarget(view);
-            mExpandAlpha.setTarget(view);
-            mExpandDir.setTarget(view);
-
-            // Now that the animations have targets, set them to be played
-            if (!animationsSetToPlay) {
-                mCollapseAnimation.play(mCollapseAlpha);
-                mCollapseAnimation.play(mCollapseDir);
-                mExpandAnimation.play(mExpandAlpha);
-                mExpandAnimation.play(mExpandDir);
-                animationsSetToPlay = true;
-            }
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
         }
     }
 }
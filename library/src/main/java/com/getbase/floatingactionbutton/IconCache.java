@@ -0,0 +1,119 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.res.Resources;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.MainThread;
+import android.util.LruCache;
+
+import java.util.Map;
+
+/**
+ * Process-wide cache of icon drawables loaded from resources, keyed by resource id and density.
+ * Every request returns a mutated copy sharing the cached {@link Drawable.ConstantState}, so
+ * changing the alpha or state of one button's icon doesn't affect the others. Hits and misses are
+ * counted in {@link FabStats}.
+ */
+public final class IconCache {
+
+    private static final int DEFAULT_MAX_SIZE_BYTES = 1024 * 1024;
+
+    private static LruCache<Key, Entry> sCache = createCache(DEFAULT_MAX_SIZE_BYTES);
+
+    private IconCache() {
+    }
+
+    /**
+     * Sets the approximate number of bytes the cached icons may take, evicting the least recently
+     * used icons if necessary. Must be called on the main thread.
+     */
+    @MainThread
+    public static void setMaxSize(int maxSizeBytes) {
+        if (maxSizeBytes <= 0) {
+            throw new IllegalArgumentException("maxSizeBytes must be positive");
+        }
+        if (maxSizeBytes == sCache.maxSize()) return;
+
+        // LruCache.resize() is API 21, so the entries are moved to a new cache instead. The
+        // snapshot is ordered from the least recently used entry, which keeps the eviction order.
+        LruCache<Key, Entry> cache = createCache(maxSizeBytes);
+        for (Map.Entry<Key, Entry> entry : sCache.snapshot().entrySet()) {
+            cache.put(entry.getKey(), entry.getValue());
+        }
+        sCache = cache;
+    }
+
+    public static void clear() {
+        sCache.evictAll();
+    }
+
+    static Drawable getDrawable(Resources res, @DrawableRes int id) {
+        Key key = new Key(id, res.getDisplayMetrics().densityDpi);
+        Entry entry = sCache.get(key);
+        if (entry != null) {
+            FabStats.increment(FabStats.ICON_CACHE_HITS);
+            return entry.mState.newDrawable(res).mutate();
+        }
+
+        FabStats.increment(FabStats.ICON_CACHE_MISSES);
+        FabStats.increment(FabStats.ICON_LOADS);
+        Drawable drawable = res.getDrawable(id);
+        Drawable.ConstantState state = drawable.getConstantState();
+        if (state != null) {
+            sCache.put(key, new Entry(state, estimateSize(drawable)));
+        }
+        return drawable.mutate();
+    }
+
+    private static LruCache<Key, Entry> createCache(int maxSizeBytes) {
+        return new LruCache<Key, Entry>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(Key key, Entry entry) {
+                return entry.mSizeBytes;
+            }
+        };
+    }
+
+    private static int estimateSize(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null) {
+            return ((BitmapDrawable) drawable).getBitmap().getByteCount();
+        }
+        // vectors and other drawables are eventually rendered at about their intrinsic size
+        return Math.max(drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * 4, 1);
+    }
+
+    private static final class Entry {
+        private final Drawable.ConstantState mState;
+        private final int mSizeBytes;
+
+        Entry(Drawable.ConstantState state, int sizeBytes) {
+            mState = state;
+            mSizeBytes = sizeBytes;
+        }
+    }
+
+    private static final class Key {
+        private final int mId;
+        private final int mDensityDpi;
+
+        Key(int id, int densityDpi) {
+            mId = id;
+            mDensityDpi = densityDpi;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return mId == key.mId && mDensityDpi == key.mDensityDpi;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mId + mDensityDpi;
+        }
+    }
+}
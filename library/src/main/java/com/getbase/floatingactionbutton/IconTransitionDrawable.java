@@ -0,0 +1,143 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+/**
+ * Main button icon of a FloatingActionsMenu which blends the collapsed and expanded icons. The
+ * progress is set from the menu animation, 0 shows the collapsed icon and 1 the expanded one.
+ */
+class IconTransitionDrawable extends Drawable implements Drawable.Callback {
+
+    static final int MODE_CROSSFADE = 0;
+    static final int MODE_ROTATE = 1;
+
+    private static final float ROTATION_DEGREES = 135f;
+
+    private final Drawable mCollapsedIcon;
+    private final Drawable mExpandedIcon;
+    private final int mMode;
+
+    private float mProgress;
+    private int mAlpha = 255;
+
+    IconTransitionDrawable(@NonNull Drawable collapsedIcon, @NonNull Drawable expandedIcon, int mode) {
+        mCollapsedIcon = collapsedIcon;
+        mExpandedIcon = expandedIcon;
+        mMode = mode;
+        mCollapsedIcon.setCallback(this);
+        mExpandedIcon.setCallback(this);
+    }
+
+    void setProgress(float progress) {
+        if (mProgress != progress) {
+            mProgress = progress;
+            invalidateSelf();
+        }
+    }
+
+    float getProgress() {
+        return mProgress;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        int saveCount = canvas.save();
+        if (mMode == MODE_ROTATE) {
+            Rect bounds = getBounds();
+            canvas.rotate(ROTATION_DEGREES * mProgress, bounds.exactCenterX(), bounds.exactCenterY());
+        }
+
+        // the same icon for both states is only rotated, never faded
+        if (mCollapsedIcon == mExpandedIcon) {
+            mCollapsedIcon.setAlpha(mAlpha);
+            mCollapsedIcon.draw(canvas);
+        } else {
+            drawFaded(canvas, mCollapsedIcon, 1f - mProgress);
+            drawFaded(canvas, mExpandedIcon, mProgress);
+        }
+
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void drawFaded(Canvas canvas, Drawable icon, float opacity) {
+        int alpha = (int) (mAlpha * opacity);
+        if (alpha > 0) {
+            icon.setAlpha(alpha);
+            icon.draw(canvas);
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        mCollapsedIcon.setBounds(bounds);
+        mExpandedIcon.setBounds(bounds);
+    }
+
+    @Override
+    public boolean isStateful() {
+        return mCollapsedIcon.isStateful() || mExpandedIcon.isStateful();
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        boolean changed = mCollapsedIcon.setState(state);
+        if (mExpandedIcon != mCollapsedIcon) {
+            changed |= mExpandedIcon.setState(state);
+        }
+        return changed;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mCollapsedIcon.setColorFilter(colorFilter);
+        mExpandedIcon.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return Math.max(mCollapsedIcon.getIntrinsicWidth(), mExpandedIcon.getIntrinsicWidth());
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return Math.max(mCollapsedIcon.getIntrinsicHeight(), mExpandedIcon.getIntrinsicHeight());
+    }
+
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+        invalidateSelf();
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        scheduleSelf(what, when);
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        unscheduleSelf(what);
+    }
+}
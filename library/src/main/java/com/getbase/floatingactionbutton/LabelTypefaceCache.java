@@ -0,0 +1,105 @@
+package com.getbase.floatingactionbutton;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide holder of the labels Typeface. The bundled font is parsed once, on a background
+ * thread. Registered listeners are notified on the main thread whenever the Typeface is set, both
+ * when the bundled font finishes loading and when it's replaced later.
+ */
+final class LabelTypefaceCache {
+
+    private static final String LABEL_FONT_PATH = "fonts/roboto_medium.ttf";
+
+    interface Listener {
+        void onLabelTypefaceLoaded(Typeface typeface);
+    }
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final ArrayList<Listener> sListeners = new ArrayList<>();
+
+    private static volatile Typeface sTypeface;
+    private static boolean sLoading;
+
+    private LabelTypefaceCache() {
+    }
+
+    /**
+     * Returns the labels Typeface if it's already available. Otherwise starts loading it in the
+     * background and returns null, the registered listeners are notified once it's ready.
+     */
+    @MainThread
+    @Nullable
+    static Typeface requestTypeface(Context context) {
+        Typeface typeface = sTypeface;
+        if (typeface != null) return typeface;
+
+        if (!sLoading) {
+            sLoading = true;
+            final AssetManager assets = context.getApplicationContext().getAssets();
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final Typeface loaded = Typeface.createFromAsset(assets, LABEL_FONT_PATH);
+                    sMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            sLoading = false;
+                            if (sTypeface == null) {
+                                setTypeface(loaded);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the labels Typeface, parsing the bundled font on the calling thread if the
+     * background load hasn't finished yet.
+     */
+    @MainThread
+    @NonNull
+    static Typeface loadTypeface(Context context) {
+        Typeface typeface = sTypeface;
+        if (typeface == null) {
+            typeface = Typeface.createFromAsset(context.getApplicationContext().getAssets(), LABEL_FONT_PATH);
+            setTypeface(typeface);
+        }
+        return typeface;
+    }
+
+    @MainThread
+    static void addListener(@NonNull Listener listener) {
+        if (!sListeners.contains(listener)) {
+            sListeners.add(listener);
+        }
+    }
+
+    @MainThread
+    static void removeListener(Listener listener) {
+        sListeners.remove(listener);
+    }
+
+    @MainThread
+    static void setTypeface(@NonNull Typeface typeface) {
+        sTypeface = typeface;
+
+        for (int i = 0; i < sListeners.size(); i++) {
+            sListeners.get(i).onLabelTypefaceLoaded(typeface);
+        }
+    }
+}
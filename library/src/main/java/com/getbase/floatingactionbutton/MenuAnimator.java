@@ -0,0 +1,357 @@
+package com.getbase.floatingactionbutton;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
+import android.support.annotation.VisibleForTesting;
+import android.view.View;
+import android.view.animation.LinearInterpolator;
+
+import java.util.ArrayList;
+
+/**
+ * Drives the expand and collapse animations of all FloatingActionsMenu items with a single
+ * ValueAnimator per direction. Items are registered during layout with their translations, and
+ * every frame writes the alpha and translation of all items from one update callback.
+ * <p>
+ * Items are grouped in slots (a button and its label share one), and with a non-zero stagger
+ * each slot starts its part of the animation that much later than the previous one.
+ * <p>
+ * Listeners are registered here rather than on the animators, so {@link #prewarm()} can run the
+ * animators without notifying them.
+ */
+final class MenuAnimator implements ValueAnimator.AnimatorUpdateListener {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+    private final ValueAnimator mExpandAnimator = ValueAnimator.ofFloat(0f, 1f);
+    private final ValueAnimator mCollapseAnimator = ValueAnimator.ofFloat(0f, 1f);
+
+    private TimeInterpolator mExpandInterpolator;
+    private TimeInterpolator mCollapseInterpolator;
+    private TimeInterpolator mExpandAlphaInterpolator;
+    private TimeInterpolator mCollapseAlphaInterpolator;
+
+    private final long mDuration;
+    private long mStagger;
+
+    private View[] mViews = new View[INITIAL_CAPACITY];
+    private float[] mCollapsedTranslations = new float[INITIAL_CAPACITY];
+    private float[] mExpandedTranslations = new float[INITIAL_CAPACITY];
+    private boolean[] mTranslated = new boolean[INITIAL_CAPACITY];
+    private int[] mSlots = new int[INITIAL_CAPACITY];
+    private int mCount;
+    private int mSlotCount;
+
+    private final ArrayList<Animator.AnimatorListener> mListeners = new ArrayList<>();
+    private final ArrayList<ValueAnimator.AnimatorUpdateListener> mUpdateListeners = new ArrayList<>();
+    private boolean mPrewarming;
+
+    private final AnimatorListenerAdapter mListenerDispatcher = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (mPrewarming) return;
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onAnimationStart(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (mPrewarming) return;
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onAnimationEnd(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            if (mPrewarming) return;
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onAnimationCancel(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationRepeat(Animator animation) {
+            if (mPrewarming) return;
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).onAnimationRepeat(animation);
+            }
+        }
+    };
+
+    private FloatingActionsMenu.OnMenuAnimationMetricsListener mMetricsListener;
+    private long mFrameBudgetNanos = budgetFor(DEFAULT_FRAME_INTERVAL_NANOS);
+    private long mMetricsStartNanos;
+    private long mMetricsLastFrameNanos;
+    private long mMetricsMaxFrameGapNanos;
+    private int mMetricsFrameCount;
+    private int mMetricsFramesOverBudget;
+    private boolean mMetricsInterrupted;
+
+    private final AnimatorListenerAdapter mMetricsCollector = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (mPrewarming) {
+                mMetricsStartNanos = 0;
+                return;
+            }
+            mMetricsStartNanos = System.nanoTime();
+            mMetricsLastFrameNanos = mMetricsStartNanos;
+            mMetricsMaxFrameGapNanos = 0;
+            mMetricsFrameCount = 0;
+            mMetricsFramesOverBudget = 0;
+            mMetricsInterrupted = false;
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mMetricsInterrupted = true;
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            // skips animations which were already running when the listener was set
+            if (mMetricsListener == null || mMetricsStartNanos == 0) return;
+
+            long durationNanos = System.nanoTime() - mMetricsStartNanos;
+            mMetricsStartNanos = 0;
+            mMetricsListener.onMenuAnimationMetrics(animation == mExpandAnimator,
+                    mMetricsFrameCount, mMetricsMaxFrameGapNanos, mMetricsFramesOverBudget,
+                    durationNanos, mMetricsInterrupted);
+        }
+    };
+
+    MenuAnimator(long duration,
+                 TimeInterpolator expandInterpolator, TimeInterpolator collapseInterpolator,
+                 TimeInterpolator expandAlphaInterpolator, TimeInterpolator collapseAlphaInterpolator) {
+        mDuration = duration;
+        mExpandInterpolator = expandInterpolator;
+        mCollapseInterpolator = collapseInterpolator;
+        mExpandAlphaInterpolator = expandAlphaInterpolator;
+        mCollapseAlphaInterpolator = collapseAlphaInterpolator;
+
+        TimeInterpolator linear = new LinearInterpolator();
+        mExpandAnimator.setInterpolator(linear);
+        mCollapseAnimator.setInterpolator(linear);
+        mExpandAnimator.addUpdateListener(this);
+        mCollapseAnimator.addUpdateListener(this);
+        mExpandAnimator.addListener(mListenerDispatcher);
+        mCollapseAnimator.addListener(mListenerDispatcher);
+    }
+
+    Animator getExpandAnimator() {
+        return mExpandAnimator;
+    }
+
+    Animator getCollapseAnimator() {
+        return mCollapseAnimator;
+    }
+
+    void addListener(Animator.AnimatorListener listener) {
+        mListeners.add(listener);
+    }
+
+    void addUpdateListener(ValueAnimator.AnimatorUpdateListener listener) {
+        mUpdateListeners.add(listener);
+    }
+
+    void setMetricsListener(FloatingActionsMenu.OnMenuAnimationMetricsListener listener) {
+        if (listener != null && mMetricsListener == null) {
+            mExpandAnimator.addListener(mMetricsCollector);
+            mCollapseAnimator.addListener(mMetricsCollector);
+        } else if (listener == null && mMetricsListener != null) {
+            mExpandAnimator.removeListener(mMetricsCollector);
+            mCollapseAnimator.removeListener(mMetricsCollector);
+            mMetricsStartNanos = 0;
+        }
+        mMetricsListener = listener;
+    }
+
+    /**
+     * Sets the refresh interval of the display the menu is shown on. Frames taking more than one
+     * and a half of it are counted as over budget, so an occasional late vsync isn't.
+     */
+    void setFrameInterval(long frameIntervalNanos) {
+        mFrameBudgetNanos = budgetFor(frameIntervalNanos > 0 ? frameIntervalNanos : DEFAULT_FRAME_INTERVAL_NANOS);
+    }
+
+    private static long budgetFor(long frameIntervalNanos) {
+        return frameIntervalNanos * 3 / 2;
+    }
+
+    void setStagger(long stagger) {
+        mStagger = Math.max(stagger, 0);
+    }
+
+    long getStagger() {
+        return mStagger;
+    }
+
+    void setExpandInterpolator(TimeInterpolator interpolator) {
+        mExpandInterpolator = interpolator;
+    }
+
+    void setCollapseInterpolator(TimeInterpolator interpolator) {
+        mCollapseInterpolator = interpolator;
+    }
+
+    @VisibleForTesting
+    int getItemCount() {
+        return mCount;
+    }
+
+    @VisibleForTesting
+    int getCapacity() {
+        return mViews.length;
+    }
+
+    void clear() {
+        for (int i = 0; i < mCount; i++) {
+            mViews[i] = null;
+        }
+        mCount = 0;
+        mSlotCount = 0;
+    }
+
+    void addItem(View view, int slot, float collapsedTranslation, float expandedTranslation) {
+        int index = append(view, slot);
+        mTranslated[index] = true;
+        mCollapsedTranslations[index] = collapsedTranslation;
+        mExpandedTranslations[index] = expandedTranslation;
+    }
+
+    void addAlphaItem(View view, int slot) {
+        int index = append(view, slot);
+        mTranslated[index] = false;
+    }
+
+    void startExpand() {
+        start(mExpandAnimator, mCollapseAnimator);
+    }
+
+    void startCollapse() {
+        start(mCollapseAnimator, mExpandAnimator);
+    }
+
+    /**
+     * Runs the collapse animator through once without notifying any listener, so the first real
+     * animation doesn't have to initialize it. Only the items are updated, to their collapsed
+     * state, so it must be called only while the menu is collapsed.
+     */
+    void prewarm() {
+        if (mExpandAnimator.isRunning() || mCollapseAnimator.isRunning()) return;
+
+        mPrewarming = true;
+        try {
+            start(mCollapseAnimator, mExpandAnimator);
+            mCollapseAnimator.end();
+        } finally {
+            mPrewarming = false;
+        }
+    }
+
+    void cancel() {
+        mExpandAnimator.cancel();
+        mCollapseAnimator.cancel();
+    }
+
+    private void start(ValueAnimator animator, ValueAnimator opposite) {
+        opposite.cancel();
+        animator.setDuration(mDuration + mStagger * Math.max(mSlotCount - 1, 0));
+        animator.start();
+    }
+
+    @Override
+    public void onAnimationUpdate(ValueAnimator animation) {
+        if (mMetricsListener != null && !mPrewarming) {
+            recordFrame();
+        }
+
+        final boolean expanding = animation == mExpandAnimator;
+        final float elapsed = animation.getAnimatedFraction() * animation.getDuration();
+
+        for (int i = 0; i < mCount; i++) {
+            // expanding staggers from the main button outwards, collapsing from the outside in
+            int slot = expanding ? mSlots[i] : mSlotCount - 1 - mSlots[i];
+            float fraction = (elapsed - slot * mStagger) / mDuration;
+            fraction = Math.max(0f, Math.min(fraction, 1f));
+
+            View view = mViews[i];
+            if (expanding) {
+                view.setAlpha(mExpandAlphaInterpolator.getInterpolation(fraction));
+                if (mTranslated[i]) {
+                    float progress = mExpandInterpolator.getInterpolation(fraction);
+                    view.setTranslationY(mCollapsedTranslations[i]
+                            + (mExpandedTranslations[i] - mCollapsedTranslations[i]) * progress);
+                }
+            } else {
+                view.setAlpha(1f - mCollapseAlphaInterpolator.getInterpolation(fraction));
+                if (mTranslated[i]) {
+                    float progress = mCollapseInterpolator.getInterpolation(fraction);
+                    view.setTranslationY(mExpandedTranslations[i]
+                            + (mCollapsedTranslations[i] - mExpandedTranslations[i]) * progress);
+                }
+            }
+        }
+
+        if (mPrewarming) return;
+        for (int i = 0; i < mUpdateListeners.size(); i++) {
+            mUpdateListeners.get(i).onAnimationUpdate(animation);
+        }
+    }
+
+    private void recordFrame() {
+        if (mMetricsStartNanos == 0) return;
+
+        long now = System.nanoTime();
+        long gap = now - mMetricsLastFrameNanos;
+        mMetricsLastFrameNanos = now;
+
+        // the first update is rendered in the frame the animation starts in
+        if (mMetricsFrameCount > 0) {
+            mMetricsMaxFrameGapNanos = Math.max(mMetricsMaxFrameGapNanos, gap);
+            if (gap > mFrameBudgetNanos) {
+                mMetricsFramesOverBudget++;
+            }
+        }
+        mMetricsFrameCount++;
+    }
+
+    private int append(View view, int slot) {
+        if (mCount == mViews.length) {
+            grow(mCount * 2);
+        }
+
+        int index = mCount++;
+        mViews[index] = view;
+        mSlots[index] = slot;
+        mSlotCount = Math.max(mSlotCount, slot + 1);
+        return index;
+    }
+
+    private void grow(int capacity) {
+        View[] views = new View[capacity];
+        System.arraycopy(mViews, 0, views, 0, mCount);
+        mViews = views;
+
+        float[] collapsedTranslations = new float[capacity];
+        System.arraycopy(mCollapsedTranslations, 0, collapsedTranslations, 0, mCount);
+        mCollapsedTranslations = collapsedTranslations;
+
+        float[] expandedTranslations = new float[capacity];
+        System.arraycopy(mExpandedTranslations, 0, expandedTranslations, 0, mCount);
+        mExpandedTranslations = expandedTranslations;
+
+        boolean[] translated = new boolean[capacity];
+        System.arraycopy(mTranslated, 0, translated, 0, mCount);
+        mTranslated = translated;
+
+        int[] slots = new int[capacity];
+        System.arraycopy(mSlots, 0, slots, 0, mCount);
+        mSlots = slots;
+    }
+}
@@ -0,0 +1,103 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.util.LruCache;
+
+/**
+ * Renders FloatingActionButton shadows procedurally and keeps them in a process-wide pool, so
+ * every button with the same circle size and shadow dimensions shares a single bitmap.
+ */
+final class ShadowCache {
+
+    private static final int MAX_SIZE_BYTES = 2 * 1024 * 1024;
+    private static final int SHADOW_COLOR = Color.argb(0x80, 0, 0, 0);
+
+    private static final LruCache<Key, Bitmap> sCache = new LruCache<Key, Bitmap>(MAX_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(Key key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+
+    private ShadowCache() {
+    }
+
+    /**
+     * Returns a square bitmap with the shadow of a circle of the given size, matching the geometry
+     * of FabDrawable: the bitmap is larger than the circle by the shadow radius on each side and
+     * the circle sits the shadow offset above its shadow. The area under the circle is transparent.
+     */
+    static Bitmap getShadow(int circleSize, float shadowRadius, float shadowOffset) {
+        Key key = new Key(circleSize, shadowRadius, shadowOffset);
+        Bitmap shadow = sCache.get(key);
+        if (shadow == null) {
+            shadow = createShadow(circleSize, shadowRadius, shadowOffset);
+            sCache.put(key, shadow);
+        }
+        return shadow;
+    }
+
+    static void clear() {
+        sCache.evictAll();
+    }
+
+    private static Bitmap createShadow(int circleSize, float shadowRadius, float shadowOffset) {
+        int size = Math.max((int) (circleSize + 2 * shadowRadius), 1);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        float center = size / 2f;
+        float circleRadius = circleSize / 2f;
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(SHADOW_COLOR);
+        if (shadowRadius > 0) {
+            paint.setMaskFilter(new BlurMaskFilter(shadowRadius / 2f, BlurMaskFilter.Blur.NORMAL));
+        }
+        canvas.drawCircle(center, center, circleRadius, paint);
+
+        Paint clearPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+        // the button itself is shadowOffset above the shadow caster, keep the area it covers clear
+        canvas.drawCircle(center, center - shadowOffset, circleRadius, clearPaint);
+
+        return bitmap;
+    }
+
+    private static final class Key {
+        private final int mCircleSize;
+        private final float mShadowRadius;
+        private final float mShadowOffset;
+
+        Key(int circleSize, float shadowRadius, float shadowOffset) {
+            mCircleSize = circleSize;
+            mShadowRadius = shadowRadius;
+            mShadowOffset = shadowOffset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+            return mCircleSize == key.mCircleSize
+                    && Float.compare(mShadowRadius, key.mShadowRadius) == 0
+                    && Float.compare(mShadowOffset, key.mShadowOffset) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mCircleSize;
+            result = 31 * result + Float.floatToIntBits(mShadowRadius);
+            result = 31 * result + Float.floatToIntBits(mShadowOffset);
+            return result;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.getbase.floatingactionbutton;
 
 import android.graphics.Rect;
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 import android.view.MotionEvent;
 import android.view.TouchDelegate;
 import android.view.View;
@@ -11,10 +12,22 @@ import java.util.ArrayList;
 public class TouchDelegateGroup extends TouchDelegate {
 
     private static final Rect USELESS_HACKY_RECT = new Rect();
+    private static final int INITIAL_CAPACITY = 8;
+
     private final ArrayList<TouchDelegate> mTouchDelegates = new ArrayList<>();
     private TouchDelegate mCurrentTouchDelegate;
     private boolean mEnabled;
 
+    // Delegates added with their bounds, sorted by the top edge. mMaxBottoms[i] is the largest
+    // bottom coordinate among the first i + 1 entries, which bounds the backwards scan in findIndexed().
+    private TouchDelegate[] mIndexedDelegates = new TouchDelegate[INITIAL_CAPACITY];
+    private int[] mLefts = new int[INITIAL_CAPACITY];
+    private int[] mTops = new int[INITIAL_CAPACITY];
+    private int[] mRights = new int[INITIAL_CAPACITY];
+    private int[] mBottoms = new int[INITIAL_CAPACITY];
+    private int[] mMaxBottoms = new int[INITIAL_CAPACITY];
+    private int mIndexedCount;
+
     public TouchDelegateGroup(View uselessHackyView) {
         super(USELESS_HACKY_RECT, uselessHackyView);
     }
@@ -23,8 +36,37 @@ public class TouchDelegateGroup extends TouchDelegate {
         mTouchDelegates.add(touchDelegate);
     }
 
+    /**
+     * Adds a delegate handling touches within the given bounds. Unlike delegates added without
+     * bounds, these are found with a binary search on ACTION_DOWN.
+     */
+    public void addTouchDelegate(@NonNull Rect bounds, @NonNull TouchDelegate touchDelegate) {
+        ensureIndexCapacity(mIndexedCount + 1);
+
+        int position = upperBound(bounds.top);
+        int moved = mIndexedCount - position;
+        if (moved > 0) {
+            System.arraycopy(mIndexedDelegates, position, mIndexedDelegates, position + 1, moved);
+            System.arraycopy(mLefts, position, mLefts, position + 1, moved);
+            System.arraycopy(mTops, position, mTops, position + 1, moved);
+            System.arraycopy(mRights, position, mRights, position + 1, moved);
+            System.arraycopy(mBottoms, position, mBottoms, position + 1, moved);
+        }
+
+        mIndexedDelegates[position] = touchDelegate;
+        mLefts[position] = bounds.left;
+        mTops[position] = bounds.top;
+        mRights[position] = bounds.right;
+        mBottoms[position] = bounds.bottom;
+        mIndexedCount++;
+
+        updateMaxBottoms(position);
+    }
+
     public void removeTouchDelegate(TouchDelegate touchDelegate) {
-        mTouchDelegates.remove(touchDelegate);
+        if (!mTouchDelegates.remove(touchDelegate)) {
+            removeIndexed(touchDelegate);
+        }
         if (mCurrentTouchDelegate == touchDelegate) {
             mCurrentTouchDelegate = null;
         }
@@ -32,9 +74,18 @@ public class TouchDelegateGroup extends TouchDelegate {
 
     public void clearTouchDelegates() {
         mTouchDelegates.clear();
+        for (int i = 0; i < mIndexedCount; i++) {
+            mIndexedDelegates[i] = null;
+        }
+        mIndexedCount = 0;
         mCurrentTouchDelegate = null;
     }
 
+    @VisibleForTesting
+    int getTouchDelegateCount() {
+        return mTouchDelegates.size() + mIndexedCount;
+    }
+
     @Override
     public boolean onTouchEvent(@NonNull MotionEvent event) {
         if (!mEnabled) return false;
@@ -43,6 +94,12 @@ public class TouchDelegateGroup extends TouchDelegate {
 
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
+                TouchDelegate indexedDelegate = findIndexed(event);
+                if (indexedDelegate != null) {
+                    mCurrentTouchDelegate = indexedDelegate;
+                    return true;
+                }
+
                 for (int i = 0; i < mTouchDelegates.size(); i++) {
                     TouchDelegate touchDelegate = mTouchDelegates.get(i);
                     if (touchDelegate.onTouchEvent(event)) {
@@ -69,4 +126,84 @@ public class TouchDelegateGroup extends TouchDelegate {
     public void setEnabled(boolean enabled) {
         mEnabled = enabled;
     }
-}
\ No newline at end of file
+
+    private TouchDelegate findIndexed(MotionEvent event) {
+        int x = (int) event.getX();
+        int y = (int) event.getY();
+
+        for (int i = upperBound(y) - 1; i >= 0 && mMaxBottoms[i] > y; i--) {
+            if (x >= mLefts[i] && x < mRights[i] && y < mBottoms[i]
+                    && mIndexedDelegates[i].onTouchEvent(event)) {
+                return mIndexedDelegates[i];
+            }
+        }
+        return null;
+    }
+
+    private void removeIndexed(TouchDelegate touchDelegate) {
+        for (int position = 0; position < mIndexedCount; position++) {
+            if (mIndexedDelegates[position] != touchDelegate) continue;
+
+            int moved = mIndexedCount - position - 1;
+            if (moved > 0) {
+                System.arraycopy(mIndexedDelegates, position + 1, mIndexedDelegates, position, moved);
+                System.arraycopy(mLefts, position + 1, mLefts, position, moved);
+                System.arraycopy(mTops, position + 1, mTops, position, moved);
+                System.arraycopy(mRights, position + 1, mRights, position, moved);
+                System.arraycopy(mBottoms, position + 1, mBottoms, position, moved);
+            }
+            mIndexedCount--;
+            mIndexedDelegates[mIndexedCount] = null;
+
+            updateMaxBottoms(position);
+            return;
+        }
+    }
+
+    /**
+     * @return the index of the first entry with the top edge below the given y.
+     */
+    private int upperBound(int y) {
+        int low = 0;
+        int high = mIndexedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mTops[mid] <= y) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void updateMaxBottoms(int from) {
+        int maxBottom = from > 0 ? mMaxBottoms[from - 1] : Integer.MIN_VALUE;
+        for (int i = from; i < mIndexedCount; i++) {
+            maxBottom = Math.max(maxBottom, mBottoms[i]);
+            mMaxBottoms[i] = maxBottom;
+        }
+    }
+
+    private void ensureIndexCapacity(int capacity) {
+        if (capacity <= mIndexedDelegates.length) return;
+
+        int newCapacity = Math.max(capacity, mIndexedDelegates.length * 2);
+
+        TouchDelegate[] delegates = new TouchDelegate[newCapacity];
+        System.arraycopy(mIndexedDelegates, 0, delegates, 0, mIndexedCount);
+        mIndexedDelegates = delegates;
+
+        mLefts = grow(mLefts, newCapacity);
+        mTops = grow(mTops, newCapacity);
+        mRights = grow(mRights, newCapacity);
+        mBottoms = grow(mBottoms, newCapacity);
+        mMaxBottoms = grow(mMaxBottoms, newCapacity);
+    }
+
+    private int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, mIndexedCount);
+        return grown;
+    }
+}
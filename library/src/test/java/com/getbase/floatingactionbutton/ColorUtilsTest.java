@@ -0,0 +1,39 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class ColorUtilsTest {
+
+    @Test
+    public void getPaletteCopiesIntoOut() {
+        int[] out = new int[ColorUtils.PALETTE_SIZE];
+
+        assertSame(out, ColorUtils.getPalette(Color.RED, out));
+        assertArrayEquals(ColorUtils.getPalette(Color.RED), out);
+        assertEquals(ColorUtils.darkenColor(Color.RED), out[ColorUtils.PALETTE_PRESSED]);
+    }
+
+    @Test
+    public void modifyingOutDoesNotAffectCachedPalette() {
+        int[] out = ColorUtils.getPalette(Color.BLUE, new int[ColorUtils.PALETTE_SIZE]);
+        int pressed = out[ColorUtils.PALETTE_PRESSED];
+
+        out[ColorUtils.PALETTE_PRESSED] = Color.GRAY;
+
+        assertEquals(pressed, ColorUtils.getPalette(Color.BLUE)[ColorUtils.PALETTE_PRESSED]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getPaletteRejectsShortArray() {
+        ColorUtils.getPalette(Color.RED, new int[ColorUtils.PALETTE_SIZE - 1]);
+    }
+}
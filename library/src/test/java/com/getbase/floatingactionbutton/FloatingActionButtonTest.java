@@ -0,0 +1,79 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Color;
+import android.graphics.RectF;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingActionButtonTest {
+
+    private FloatingActionButton mButton;
+
+    @Before
+    public void setUp() {
+        mButton = new FloatingActionButton(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void editorRebuildsBackgroundOnce() {
+        int updates = mButton.getBackgroundUpdateCount();
+
+        mButton.edit()
+                .colorNormal(Color.RED)
+                .colorPressed(Color.BLUE)
+                .colorDisabled(Color.GRAY)
+                .strokeVisible(false)
+                .size(FloatingActionButton.SIZE_MINI)
+                .apply();
+
+        assertEquals(updates + 1, mButton.getBackgroundUpdateCount());
+        assertEquals(Color.RED, mButton.getColorNormal());
+        assertEquals(FloatingActionButton.SIZE_MINI, mButton.getSize());
+    }
+
+    @Test
+    public void editorWithoutChangesDoesNotRebuildBackground() {
+        int updates = mButton.getBackgroundUpdateCount();
+
+        mButton.edit()
+                .colorNormal(mButton.getColorNormal())
+                .size(mButton.getSize())
+                .apply();
+
+        assertEquals(updates, mButton.getBackgroundUpdateCount());
+    }
+
+    @Test
+    public void separateSettersRebuildBackgroundEachTime() {
+        int updates = mButton.getBackgroundUpdateCount();
+
+        mButton.setColorNormal(Color.RED);
+        mButton.setColorPressed(Color.BLUE);
+
+        assertEquals(updates + 2, mButton.getBackgroundUpdateCount());
+    }
+
+    @Test
+    public void strokeWithoutShadowStaysWithinTheBounds() {
+        int size = 56;
+        float halfStrokeWidth = 1.5f;
+        // no shadow around the circle, as with the elevation shadow
+        FabDrawable drawable = new FabDrawable(null, Color.RED, Color.BLUE, Color.GRAY, true,
+                halfStrokeWidth * 2, size, 24f, 0f, 0f);
+        drawable.setBounds(0, 0, size, size);
+
+        RectF stroke = drawable.getOuterStrokeRect();
+        assertTrue(stroke.left - halfStrokeWidth >= 0);
+        assertTrue(stroke.top - halfStrokeWidth >= 0);
+        assertTrue(stroke.right + halfStrokeWidth <= size);
+        assertTrue(stroke.bottom + halfStrokeWidth <= size);
+    }
+}
@@ -0,0 +1,56 @@
+package com.getbase.floatingactionbutton;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingActionsMenuItemsTest {
+
+    private static final int ITEM_ID = 1;
+
+    private FloatingActionsMenu mMenu;
+
+    @Before
+    public void setUp() {
+        mMenu = new FloatingActionsMenu(RuntimeEnvironment.application, null);
+    }
+
+    @Test
+    public void titleAddedToExistingItemCreatesLabel() {
+        bind(new FloatingActionItem.Builder(ITEM_ID).build());
+        FloatingActionButton button = (FloatingActionButton) mMenu.findViewById(ITEM_ID);
+        assertNull(button.getLabelView());
+
+        bind(new FloatingActionItem.Builder(ITEM_ID).title("Title").build());
+
+        assertSame(button, mMenu.findViewById(ITEM_ID));
+        assertNotNull(button.getLabelView());
+        assertEquals("Title", button.getLabelView().getText().toString());
+    }
+
+    @Test
+    public void titleRemovedFromExistingItemRemovesLabel() {
+        bind(new FloatingActionItem.Builder(ITEM_ID).title("Title").build());
+        FloatingActionButton button = (FloatingActionButton) mMenu.findViewById(ITEM_ID);
+        int childCount = mMenu.getChildCount();
+
+        bind(new FloatingActionItem.Builder(ITEM_ID).build());
+
+        assertNull(button.getLabelView());
+        assertEquals(childCount - 1, mMenu.getChildCount());
+    }
+
+    private void bind(FloatingActionItem item) {
+        mMenu.setItems(Collections.singletonList(item));
+    }
+}
@@ -0,0 +1,151 @@
+package com.getbase.floatingactionbutton;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingActionsMenuLayoutTest {
+
+    private static final int BUTTON_COUNT = 4;
+    private static final int LAYOUT_PASSES = 1000;
+
+    private FloatingActionsMenu mMenu;
+
+    @Before
+    public void setUp() {
+        mMenu = new FloatingActionsMenu(RuntimeEnvironment.application, null);
+        for (int i = 0; i < BUTTON_COUNT; i++) {
+            FloatingActionButton button = new FloatingActionButton(RuntimeEnvironment.application);
+            button.setTitle("Action " + i);
+            // consumes the touches the label touch delegates forward
+            button.setClickable(true);
+            mMenu.addButton(button);
+        }
+
+        measureAndLayout();
+    }
+
+    @Test
+    public void repeatedLayoutKeepsTouchDelegatesAndAnimatorItems() {
+        MenuAnimator animator = mMenu.getMenuAnimator();
+        TouchDelegateGroup touchDelegates = mMenu.getTouchDelegateGroup();
+
+        int animatorItems = animator.getItemCount();
+        int animatorCapacity = animator.getCapacity();
+        int delegates = touchDelegates.getTouchDelegateCount();
+        FabStats before = FabStats.snapshot();
+
+        for (int i = 0; i < LAYOUT_PASSES; i++) {
+            mMenu.onLayout(false, 0, 0, mMenu.getMeasuredWidth(), mMenu.getMeasuredHeight());
+        }
+
+        FabStats after = FabStats.snapshot();
+
+        // a button and its label per slot
+        assertEquals(BUTTON_COUNT * 2, animatorItems);
+        assertEquals(BUTTON_COUNT, delegates);
+
+        assertEquals(animatorItems, animator.getItemCount());
+        assertEquals(delegates, touchDelegates.getTouchDelegateCount());
+
+        // no allocations: the animator arrays never grow, and no TouchDelegate or Rect is created
+        assertEquals(animatorCapacity, animator.getCapacity());
+        assertEquals(before.getTouchDelegateRebuilds(), after.getTouchDelegateRebuilds());
+        assertEquals(before.getLabelCreations(), after.getLabelCreations());
+        assertEquals(before.getMenuLayouts() + LAYOUT_PASSES, after.getMenuLayouts());
+    }
+
+    @Test
+    public void movedTouchAreasAreRebuiltOnce() {
+        TouchDelegateGroup touchDelegates = mMenu.getTouchDelegateGroup();
+        int width = mMenu.getMeasuredWidth();
+        int height = mMenu.getMeasuredHeight();
+        FabStats before = FabStats.snapshot();
+
+        for (int i = 0; i < LAYOUT_PASSES; i++) {
+            mMenu.onLayout(false, 0, 0, width + 10, height + 10);
+        }
+
+        FabStats after = FabStats.snapshot();
+        assertEquals(before.getTouchDelegateRebuilds() + BUTTON_COUNT, after.getTouchDelegateRebuilds());
+        assertEquals(BUTTON_COUNT, touchDelegates.getTouchDelegateCount());
+    }
+
+    @Test
+    public void elevationShadowsFitWithinTheMenu() {
+        int elevation = (int) Math.ceil(FabMetrics.get(mMenu.getResources()).mElevation);
+
+        for (int i = 0; i < mMenu.getChildCount(); i++) {
+            View child = mMenu.getChildAt(i);
+            if (!(child instanceof FloatingActionButton)) continue;
+
+            assertTrue(child.getLeft() >= elevation);
+            assertTrue(child.getTop() >= elevation);
+            assertTrue(child.getRight() <= mMenu.getWidth() - elevation);
+            assertTrue(child.getBottom() <= mMenu.getHeight() - elevation);
+        }
+    }
+
+    @Test
+    public void hiddenButtonLosesItsLabelTouchArea() {
+        FloatingActionButton button = (FloatingActionButton) mMenu.getChildAt(0);
+        View label = button.getLabelView();
+        int x = (label.getLeft() + label.getRight()) / 2;
+        int y = (label.getTop() + label.getBottom()) / 2;
+
+        TouchDelegateGroup touchDelegates = mMenu.getTouchDelegateGroup();
+        touchDelegates.setEnabled(true);
+        assertTrue(down(touchDelegates, x, y));
+
+        button.setVisibility(View.GONE);
+        // same frame, so the other buttons keep their touch areas
+        mMenu.onLayout(false, 0, 0, mMenu.getWidth(), mMenu.getHeight());
+
+        assertEquals(BUTTON_COUNT - 1, touchDelegates.getTouchDelegateCount());
+        assertFalse(down(touchDelegates, x, y));
+    }
+
+    @Test
+    public void prewarmLeavesTheMenuFrameAndTouchAreasAlone() {
+        int width = mMenu.getMeasuredWidth();
+        int height = mMenu.getMeasuredHeight();
+        View button = mMenu.getChildAt(0);
+        int buttonTop = button.getTop();
+        FabStats before = FabStats.snapshot();
+
+        mMenu.prewarm();
+
+        assertTrue(mMenu.isPrewarmed());
+        assertEquals(width, mMenu.getMeasuredWidth());
+        assertEquals(height, mMenu.getMeasuredHeight());
+        assertEquals(buttonTop, button.getTop());
+        assertEquals(before.getTouchDelegateRebuilds(), FabStats.snapshot().getTouchDelegateRebuilds());
+    }
+
+    private static boolean down(TouchDelegateGroup touchDelegates, int x, int y) {
+        MotionEvent event = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, x, y, 0);
+        try {
+            return touchDelegates.onTouchEvent(event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    private void measureAndLayout() {
+        int widthSpec = MeasureSpec.makeMeasureSpec(1080, MeasureSpec.AT_MOST);
+        int heightSpec = MeasureSpec.makeMeasureSpec(1920, MeasureSpec.AT_MOST);
+        mMenu.measure(widthSpec, heightSpec);
+        mMenu.layout(0, 0, mMenu.getMeasuredWidth(), mMenu.getMeasuredHeight());
+    }
+}
@@ -0,0 +1,69 @@
+package com.getbase.floatingactionbutton;
+
+import android.util.AttributeSet;
+import android.view.View.MeasureSpec;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingActionsMenuLazyInitTest {
+
+    private static final String[] TITLES = {"Short", "A considerably longer title", null};
+
+    @Test
+    public void collapsedLazyMenuReservesLabelWidth() {
+        FloatingActionsMenu lazyMenu = createMenu(true);
+        FloatingActionsMenu eagerMenu = createMenu(false);
+
+        // the labels of the lazy menu don't exist yet
+        assertNull(((FloatingActionButton) lazyMenu.getChildAt(0)).getLabelView());
+        assertEquals(measureWidth(eagerMenu), measureWidth(lazyMenu));
+    }
+
+    @Test
+    public void menuBuiltInCodeCreatesLabelsWithoutLazyInit() {
+        FloatingActionsMenu menu = createMenu(false);
+
+        // no onFinishInflate() for menus built with addButton()
+        assertNotNull(((FloatingActionButton) menu.getChildAt(0)).getLabelView());
+        assertNull(((FloatingActionButton) menu.getChildAt(2)).getLabelView());
+    }
+
+    @Test
+    public void firstExpandDoesNotWidenLazyMenu() {
+        FloatingActionsMenu menu = createMenu(true);
+        int collapsedWidth = measureWidth(menu);
+
+        menu.expand();
+
+        assertEquals(collapsedWidth, measureWidth(menu));
+    }
+
+    private static FloatingActionsMenu createMenu(boolean lazyInit) {
+        AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.fab_lazyInit, String.valueOf(lazyInit))
+                .build();
+        FloatingActionsMenu menu = new FloatingActionsMenu(RuntimeEnvironment.application, attrs);
+        for (String title : TITLES) {
+            FloatingActionButton button = new FloatingActionButton(RuntimeEnvironment.application);
+            button.setTitle(title);
+            menu.addButton(button);
+        }
+        return menu;
+    }
+
+    private static int measureWidth(FloatingActionsMenu menu) {
+        int widthSpec = MeasureSpec.makeMeasureSpec(1080, MeasureSpec.AT_MOST);
+        int heightSpec = MeasureSpec.makeMeasureSpec(1920, MeasureSpec.AT_MOST);
+        menu.measure(widthSpec, heightSpec);
+        return menu.getMeasuredWidth();
+    }
+}
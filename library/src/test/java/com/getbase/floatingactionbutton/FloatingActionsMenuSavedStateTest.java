@@ -0,0 +1,84 @@
+package com.getbase.floatingactionbutton;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingActionsMenuSavedStateTest {
+
+    private static final String[] TITLES = {"First", null, "Third", ""};
+
+    @Test
+    public void titlesSurviveRoundTripIntoNewMenu() {
+        FloatingActionsMenu menu = createMenu();
+        Parcelable state = parcel(menu.onSaveInstanceState());
+
+        FloatingActionsMenu restoredMenu = createMenu();
+        for (int i = 0; i < TITLES.length; i++) {
+            button(restoredMenu, i).setTitle("Changed " + i);
+        }
+        restoredMenu.onRestoreInstanceState(state);
+
+        for (int i = 0; i < TITLES.length; i++) {
+            assertEquals(TITLES[i], button(restoredMenu, i).getTitle());
+        }
+        assertFalse(restoredMenu.isExpanded());
+    }
+
+    @Test
+    public void nullTitleIsRestoredAsNull() {
+        FloatingActionsMenu menu = createMenu();
+        Parcelable state = parcel(menu.onSaveInstanceState());
+
+        button(menu, 1).setTitle("Not null");
+        menu.onRestoreInstanceState(state);
+
+        assertNull(button(menu, 1).getTitle());
+    }
+
+    @Test
+    public void emptyMenuRoundTrips() {
+        FloatingActionsMenu menu = new FloatingActionsMenu(RuntimeEnvironment.application, null);
+        Parcelable state = parcel(menu.onSaveInstanceState());
+
+        menu.onRestoreInstanceState(state);
+
+        assertFalse(menu.isExpanded());
+    }
+
+    private static FloatingActionsMenu createMenu() {
+        FloatingActionsMenu menu = new FloatingActionsMenu(RuntimeEnvironment.application, null);
+        for (int i = 0; i < TITLES.length; i++) {
+            FloatingActionButton button = new FloatingActionButton(RuntimeEnvironment.application);
+            button.setId(i + 1);
+            button.setTitle(TITLES[i]);
+            menu.addButton(button);
+        }
+        return menu;
+    }
+
+    private static FloatingActionButton button(FloatingActionsMenu menu, int index) {
+        return (FloatingActionButton) menu.findViewById(index + 1);
+    }
+
+    // writes and reads the state the way the framework does between activity instances
+    private static Parcelable parcel(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(state, 0);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(FloatingActionsMenu.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.getbase.floatingactionbutton;
+
+import android.app.Activity;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FloatingActionsMenuScrimTest {
+
+    private FrameLayout mParent;
+    private FloatingActionsMenu mMenu;
+    private boolean mSiblingClicked;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mParent = new FrameLayout(activity);
+
+        // drawn before the menu, so it's dimmed by the scrim
+        View sibling = new View(activity);
+        sibling.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mSiblingClicked = true;
+            }
+        });
+        mParent.addView(sibling, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT));
+
+        mMenu = new FloatingActionsMenu(activity, null);
+        mMenu.setOverlayEnabled(true);
+        mMenu.setOverlayMode(FloatingActionsMenu.OVERLAY_MODE_SCRIM);
+        FloatingActionButton button = new FloatingActionButton(activity);
+        button.setTitle("Action");
+        mMenu.addButton(button);
+        mParent.addView(mMenu, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM | Gravity.END));
+
+        activity.setContentView(mParent);
+        measureAndLayout();
+    }
+
+    @Test
+    public void parentClipsChildrenWhileCollapsed() {
+        assertTrue(mParent.getClipChildren());
+
+        expand();
+        assertFalse(mParent.getClipChildren());
+
+        collapse();
+        assertTrue(mParent.getClipChildren());
+    }
+
+    @Test
+    public void touchesReachViewsBelowTheMenuWhileCollapsed() {
+        tap(10, 10);
+
+        assertTrue(mSiblingClicked);
+    }
+
+    @Test
+    public void scrimConsumesTouchesAndCollapsesTheMenu() {
+        expand();
+
+        tap(10, 10);
+
+        assertFalse(mSiblingClicked);
+        assertFalse(mMenu.isExpanded());
+    }
+
+    private void expand() {
+        mMenu.expand();
+        ShadowLooper.runUiThreadTasks();
+        measureAndLayout();
+        mMenu.getMenuAnimator().getExpandAnimator().end();
+    }
+
+    private void collapse() {
+        mMenu.collapse();
+        ShadowLooper.runUiThreadTasks();
+        mMenu.getMenuAnimator().getCollapseAnimator().end();
+    }
+
+    private void tap(int x, int y) {
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+        dispatch(MotionEvent.ACTION_UP, x, y);
+        // the click is posted
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    private void dispatch(int action, int x, int y) {
+        MotionEvent event = MotionEvent.obtain(0, 0, action, x, y, 0);
+        try {
+            mParent.dispatchTouchEvent(event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    private void measureAndLayout() {
+        int widthSpec = MeasureSpec.makeMeasureSpec(1080, MeasureSpec.EXACTLY);
+        int heightSpec = MeasureSpec.makeMeasureSpec(1920, MeasureSpec.EXACTLY);
+        mParent.measure(widthSpec, heightSpec);
+        mParent.layout(0, 0, 1080, 1920);
+    }
+}
@@ -0,0 +1,54 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Typeface;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class LabelTypefaceCacheTest {
+
+    private final List<Typeface> mNotified = new ArrayList<>();
+
+    private final LabelTypefaceCache.Listener mListener = new LabelTypefaceCache.Listener() {
+        @Override
+        public void onLabelTypefaceLoaded(Typeface typeface) {
+            mNotified.add(typeface);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        LabelTypefaceCache.removeListener(mListener);
+    }
+
+    @Test
+    public void listenerStaysRegisteredAfterNotification() {
+        LabelTypefaceCache.addListener(mListener);
+
+        LabelTypefaceCache.setTypeface(Typeface.SERIF);
+        LabelTypefaceCache.setTypeface(Typeface.MONOSPACE);
+
+        assertEquals(2, mNotified.size());
+        assertSame(Typeface.SERIF, mNotified.get(0));
+        assertSame(Typeface.MONOSPACE, mNotified.get(1));
+    }
+
+    @Test
+    public void removedListenerIsNotNotified() {
+        LabelTypefaceCache.addListener(mListener);
+        LabelTypefaceCache.removeListener(mListener);
+
+        LabelTypefaceCache.setTypeface(Typeface.SERIF);
+
+        assertEquals(0, mNotified.size());
+    }
+}
@@ -0,0 +1,90 @@
+package com.getbase.floatingactionbutton;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.view.View;
+import android.view.animation.LinearInterpolator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class MenuAnimatorTest {
+
+    private MenuAnimator mAnimator;
+    private View mItem;
+    private int mListenerCalls;
+    private int mUpdateCalls;
+
+    @Before
+    public void setUp() {
+        LinearInterpolator linear = new LinearInterpolator();
+        mAnimator = new MenuAnimator(300, linear, linear, linear, linear);
+        mAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationStart(Animator animation) {
+                mListenerCalls++;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                mListenerCalls++;
+            }
+        });
+        mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                mUpdateCalls++;
+            }
+        });
+
+        mItem = new View(RuntimeEnvironment.application);
+        mAnimator.addItem(mItem, 0, 100f, 0f);
+    }
+
+    @Test
+    public void prewarmDoesNotNotifyListeners() {
+        final int[] metricsReports = new int[1];
+        mAnimator.setMetricsListener(new FloatingActionsMenu.OnMenuAnimationMetricsListener() {
+            @Override
+            public void onMenuAnimationMetrics(boolean expand, int frameCount, long maxFrameGapNanos,
+                                               int framesOverBudget, long durationNanos, boolean interrupted) {
+                metricsReports[0]++;
+            }
+        });
+
+        mAnimator.prewarm();
+
+        assertEquals(0, mListenerCalls);
+        assertEquals(0, mUpdateCalls);
+        assertEquals(0, metricsReports[0]);
+        assertFalse(mAnimator.getCollapseAnimator().isRunning());
+    }
+
+    @Test
+    public void prewarmLeavesItemsCollapsed() {
+        mAnimator.prewarm();
+
+        assertEquals(0f, mItem.getAlpha(), 0f);
+        assertEquals(100f, mItem.getTranslationY(), 0f);
+    }
+
+    @Test
+    public void listenersAreNotifiedAfterPrewarm() {
+        mAnimator.prewarm();
+
+        mAnimator.startCollapse();
+        mAnimator.getCollapseAnimator().end();
+
+        assertEquals(2, mListenerCalls);
+        assertTrue(mUpdateCalls > 0);
+    }
+}
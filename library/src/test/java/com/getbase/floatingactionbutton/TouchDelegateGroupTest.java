@@ -0,0 +1,221 @@
+package com.getbase.floatingactionbutton;
+
+import android.graphics.Rect;
+import android.view.MotionEvent;
+import android.view.TouchDelegate;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TouchDelegateGroupTest {
+
+    private View mView;
+    private TouchDelegateGroup mGroup;
+    private RecordingDelegate mLastHandled;
+
+    @Before
+    public void setUp() {
+        mView = new View(RuntimeEnvironment.application);
+        mGroup = new TouchDelegateGroup(mView);
+        mGroup.setEnabled(true);
+    }
+
+    @Test
+    public void downIsRoutedToDelegateContainingTheTouch() {
+        RecordingDelegate top = add(0, 0, 100, 50);
+        RecordingDelegate bottom = add(0, 60, 100, 110);
+
+        assertTrue(down(50, 80));
+        assertSame(bottom, mLastHandled);
+        assertEquals(0, top.mEvents);
+    }
+
+    @Test
+    public void backwardsScanFindsTallDelegateBehindShorterOnes() {
+        // the tall delegate starts first, the scan has to walk past both short ones to reach it
+        RecordingDelegate tall = add(0, 0, 100, 300);
+        RecordingDelegate first = add(0, 100, 100, 150);
+        RecordingDelegate second = add(0, 200, 100, 250);
+
+        assertTrue(down(50, 260));
+        assertSame(tall, mLastHandled);
+        assertEquals(0, first.mEvents);
+        assertEquals(0, second.mEvents);
+    }
+
+    @Test
+    public void overlappingDelegatePrefersTheOneStartingLater() {
+        add(0, 0, 100, 300);
+        RecordingDelegate inner = add(0, 100, 100, 150);
+
+        assertTrue(down(50, 120));
+        assertSame(inner, mLastHandled);
+    }
+
+    @Test
+    public void touchesOutsideAllBoundsAreNotRouted() {
+        RecordingDelegate delegate = add(10, 100, 100, 150);
+
+        assertFalse(down(50, 50));
+        assertFalse(down(50, 150));
+        assertFalse(down(5, 120));
+        assertFalse(down(100, 120));
+        assertEquals(0, delegate.mEvents);
+    }
+
+    @Test
+    public void insertionOrderDoesNotMatter() {
+        RecordingDelegate third = add(0, 200, 100, 250);
+        RecordingDelegate first = add(0, 0, 100, 50);
+        RecordingDelegate second = add(0, 100, 100, 150);
+
+        assertTrue(down(50, 10));
+        assertSame(first, mLastHandled);
+        assertTrue(down(50, 110));
+        assertSame(second, mLastHandled);
+        assertTrue(down(50, 210));
+        assertSame(third, mLastHandled);
+    }
+
+    @Test
+    public void findsEveryDelegateBeyondInitialCapacity() {
+        RecordingDelegate[] delegates = new RecordingDelegate[40];
+        for (int i = delegates.length - 1; i >= 0; i--) {
+            delegates[i] = add(0, i * 20, 100, i * 20 + 15);
+        }
+
+        assertEquals(delegates.length, mGroup.getTouchDelegateCount());
+        for (int i = 0; i < delegates.length; i++) {
+            assertTrue(down(50, i * 20 + 5));
+            assertSame(delegates[i], mLastHandled);
+            assertFalse(down(50, i * 20 + 17));
+        }
+    }
+
+    @Test
+    public void removedIndexedDelegateIsNoLongerHit() {
+        RecordingDelegate first = add(0, 0, 100, 50);
+        RecordingDelegate second = add(0, 60, 100, 110);
+        RecordingDelegate third = add(0, 120, 100, 170);
+
+        mGroup.removeTouchDelegate(second);
+
+        assertEquals(2, mGroup.getTouchDelegateCount());
+        assertFalse(down(50, 80));
+        assertEquals(0, second.mEvents);
+        assertTrue(down(50, 10));
+        assertSame(first, mLastHandled);
+        assertTrue(down(50, 130));
+        assertSame(third, mLastHandled);
+    }
+
+    @Test
+    public void removingTallDelegateShortensTheScan() {
+        RecordingDelegate tall = add(0, 0, 100, 300);
+        add(0, 100, 100, 150);
+        add(0, 200, 100, 250);
+
+        mGroup.removeTouchDelegate(tall);
+
+        assertFalse(down(50, 260));
+        assertFalse(down(50, 10));
+        assertEquals(0, tall.mEvents);
+    }
+
+    @Test
+    public void removingCurrentDelegateEndsTheGesture() {
+        RecordingDelegate delegate = add(0, 0, 100, 50);
+        assertTrue(down(50, 10));
+
+        mGroup.removeTouchDelegate(delegate);
+
+        assertFalse(dispatch(MotionEvent.ACTION_MOVE, 50, 20));
+        assertEquals(1, delegate.mEvents);
+    }
+
+    @Test
+    public void gestureFollowsTheDelegateHitOnDown() {
+        RecordingDelegate delegate = add(0, 0, 100, 50);
+        add(0, 60, 100, 110);
+
+        assertTrue(down(50, 10));
+        // moves outside the bounds still go to the delegate which got the down event
+        assertTrue(dispatch(MotionEvent.ACTION_MOVE, 50, 80));
+        assertTrue(dispatch(MotionEvent.ACTION_UP, 50, 80));
+        assertEquals(3, delegate.mEvents);
+
+        assertFalse(dispatch(MotionEvent.ACTION_MOVE, 50, 80));
+    }
+
+    @Test
+    public void clearRemovesIndexedDelegates() {
+        add(0, 0, 100, 50);
+        add(0, 60, 100, 110);
+
+        mGroup.clearTouchDelegates();
+
+        assertEquals(0, mGroup.getTouchDelegateCount());
+        assertFalse(down(50, 10));
+        assertNull(mLastHandled);
+    }
+
+    @Test
+    public void disabledGroupIgnoresTouches() {
+        add(0, 0, 100, 50);
+        mGroup.setEnabled(false);
+
+        assertFalse(down(50, 10));
+    }
+
+    private RecordingDelegate add(int left, int top, int right, int bottom) {
+        Rect bounds = new Rect(left, top, right, bottom);
+        RecordingDelegate delegate = new RecordingDelegate(bounds, mView);
+        mGroup.addTouchDelegate(bounds, delegate);
+        return delegate;
+    }
+
+    private boolean down(int x, int y) {
+        mLastHandled = null;
+        return dispatch(MotionEvent.ACTION_DOWN, x, y);
+    }
+
+    private boolean dispatch(int action, int x, int y) {
+        MotionEvent event = MotionEvent.obtain(0, 0, action, x, y, 0);
+        try {
+            return mGroup.onTouchEvent(event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    /**
+     * Accepts every event it gets, the group is responsible for only passing the ones within the
+     * bounds.
+     */
+    private final class RecordingDelegate extends TouchDelegate {
+
+        private int mEvents;
+
+        RecordingDelegate(Rect bounds, View delegateView) {
+            super(bounds, delegateView);
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            mEvents++;
+            mLastHandled = this;
+            return true;
+        }
+    }
+}